@@ -1,9 +1,18 @@
 package isthatkirill.main.category.repository;
 
 import isthatkirill.main.category.model.Category;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Page<Category> findAll(Pageable pageable);
+
 }
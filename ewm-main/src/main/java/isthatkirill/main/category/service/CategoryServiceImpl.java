@@ -80,7 +80,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     private void checkIfCategoryExists(Long catId) {
-        if (!categoryRepository.existsById(catId)) {
+        if (categoryRepository.findById(catId).isEmpty()) {
             throw new EntityNotFoundException(Category.class, catId);
         }
     }
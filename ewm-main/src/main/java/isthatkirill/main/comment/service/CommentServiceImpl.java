@@ -133,7 +133,7 @@ public class CommentServiceImpl implements CommentService {
     }
 
     private void checkIfUserExists(Long userId) {
-        if (!userRepository.existsById(userId)) {
+        if (userRepository.findById(userId).isEmpty()) {
             throw new EntityNotFoundException(User.class, userId);
         }
     }
@@ -0,0 +1,17 @@
+package isthatkirill.main.compilation.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CompilationEventDto {
+
+    Long compilationId;
+    Long eventId;
+
+}
@@ -1,8 +1,10 @@
 package isthatkirill.main.compilation.repository;
 
+import isthatkirill.main.compilation.dto.CompilationEventDto;
 import isthatkirill.main.compilation.model.Compilation;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,12 @@ public interface CompilationRepository extends JpaRepository<Compilation, Long>
 
     List<Compilation> findAllByPinnedIs(Boolean pinned, Pageable pageable);
 
+    List<Compilation> findAllBy(Pageable pageable);
+
+    @Query("SELECT new isthatkirill.main.compilation.dto.CompilationEventDto(c.id, e.id) " +
+            "FROM Compilation c JOIN c.events e " +
+            "WHERE c.id IN ?1 " +
+            "ORDER BY c.id, e.id")
+    List<CompilationEventDto> findCompilationEvents(List<Long> compIds);
+
 }
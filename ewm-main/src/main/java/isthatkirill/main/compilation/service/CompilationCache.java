@@ -0,0 +1,165 @@
+package isthatkirill.main.compilation.service;
+
+import isthatkirill.main.compilation.dto.CompilationResponseDto;
+import isthatkirill.main.event.dto.EventShortDto;
+import isthatkirill.main.event.model.EventsChanged;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LRU cache of rendered compilations. Entries expire after the ttl to keep view counts fresh and are evicted
+ * once a change to the compilation or to any of its events commits. A render that started before an eviction
+ * is not cached, so a stale read cannot overwrite it.
+ */
+@Slf4j
+@Component
+public class CompilationCache {
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<Long, Entry> entries;
+    private final Map<Long, Set<Long>> compilationsByEvent = new HashMap<>();
+    private long generation;
+
+    @Autowired
+    public CompilationCache(@Value("${compilations.cache.max-size:1000}") int maxSize,
+                            @Value("${compilations.cache.ttl-ms:10000}") long ttlMs) {
+        this(maxSize, Duration.ofMillis(ttlMs), Clock.systemDefaultZone());
+    }
+
+    CompilationCache(int maxSize, Duration ttl, Clock clock) {
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompilationCache.Entry> eldest) {
+                if (size() > maxSize) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Taken before reading a compilation from the database and handed back to {@link #put}.
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    public Map<Long, CompilationResponseDto> getAll(Collection<Long> compIds) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<Long, CompilationResponseDto> found = new HashMap<>();
+        synchronized (entries) {
+            for (Long compId : compIds) {
+                Entry entry = entries.get(compId);
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.renderedAt.plus(ttl).isBefore(now)) {
+                    remove(compId);
+                } else {
+                    found.put(compId, entry.compilation);
+                }
+            }
+        }
+        return found;
+    }
+
+    public void put(CompilationResponseDto compilation, long generation) {
+        Entry entry = new Entry(compilation, LocalDateTime.now(clock));
+        synchronized (entries) {
+            if (this.generation != generation) {
+                return;
+            }
+            remove(compilation.getId());
+            entries.put(compilation.getId(), entry);
+            if (entries.get(compilation.getId()) == entry) {
+                compilation.getEvents().forEach(e ->
+                        compilationsByEvent.computeIfAbsent(e.getId(), id -> new HashSet<>()).add(compilation.getId()));
+            }
+        }
+    }
+
+    public void evict(Long compId) {
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation++;
+                remove(compId);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventsChanged(EventsChanged changed) {
+        synchronized (entries) {
+            generation++;
+            for (Long eventId : changed.getEventIds()) {
+                Set<Long> compIds = compilationsByEvent.get(eventId);
+                if (compIds != null) {
+                    new HashSet<>(compIds).forEach(this::remove);
+                }
+            }
+        }
+        log.debug("Compilations evicted for changed events {}", changed.getEventIds());
+    }
+
+    private void remove(Long compId) {
+        Entry entry = entries.remove(compId);
+        if (entry != null) {
+            unindex(compId, entry);
+        }
+    }
+
+    private void unindex(Long compId, Entry entry) {
+        for (EventShortDto event : entry.compilation.getEvents()) {
+            Set<Long> compIds = compilationsByEvent.get(event.getId());
+            if (compIds != null && compIds.remove(compId) && compIds.isEmpty()) {
+                compilationsByEvent.remove(event.getId());
+            }
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class Entry {
+
+        private final CompilationResponseDto compilation;
+        private final LocalDateTime renderedAt;
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package isthatkirill.main.compilation.service;
 
+import isthatkirill.main.compilation.dto.CompilationEventDto;
 import isthatkirill.main.compilation.dto.CompilationRequestDto;
 import isthatkirill.main.compilation.dto.CompilationResponseDto;
 import isthatkirill.main.compilation.mapper.CompilationMapper;
@@ -19,6 +20,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,6 +33,7 @@ public class CompilationServiceImpl implements CompilationService {
     private final CompilationMapper compilationMapper;
     private final EventMapper eventMapper;
     private final StatService statService;
+    private final CompilationCache compilationCache;
 
     @Override
     @Transactional
@@ -42,7 +45,7 @@ public class CompilationServiceImpl implements CompilationService {
         Set<Event> events = listToSet(eventRepository.findEventsByIdIn(compilationRequestDto.getEvents()));
         checkIfAllEventsFound(events.size(), compilationRequestDto.getEvents().size());
         Compilation compilation = compilationRepository.save(compilationMapper.toCompilation(compilationRequestDto, events));
-        return compilationMapper.toCompilationDto(compilation, findViewsAndRequestsForEvents(events));
+        return toCompilationDtos(List.of(compilation), Map.of(compilation.getId(), new ArrayList<>(events))).get(0);
     }
 
     @Override
@@ -63,7 +66,12 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setEvents(events);
         }
 
-        return compilationMapper.toCompilationDto(compilation, findViewsAndRequestsForEvents(compilation.getEvents()));
+        compilationCache.evict(compId);
+        if (compilationRequestDto.getEvents() != null) {
+            return toCompilationDtos(List.of(compilation),
+                    Map.of(compId, new ArrayList<>(compilation.getEvents()))).get(0);
+        }
+        return toCompilationDtos(List.of(compilation)).get(0);
     }
 
     @Override
@@ -72,15 +80,21 @@ public class CompilationServiceImpl implements CompilationService {
         checkIfCompExists(compId);
         log.info("Delete compilation with id={}", compId);
         compilationRepository.deleteById(compId);
+        compilationCache.evict(compId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public CompilationResponseDto getById(Long compId) {
         log.info("Get compilation with id={}", compId);
-        Compilation compilation = checkIfCompExistsAndGet(compId);
-        Set<Event> events = compilation.getEvents();
-        return compilationMapper.toCompilationDto(compilation, findViewsAndRequestsForEvents(events));
+        CompilationResponseDto cached = compilationCache.getAll(List.of(compId)).get(compId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = compilationCache.generation();
+        CompilationResponseDto compilation = toCompilationDtos(List.of(checkIfCompExistsAndGet(compId))).get(0);
+        compilationCache.put(compilation, generation);
+        return compilation;
     }
 
     @Override
@@ -88,27 +102,83 @@ public class CompilationServiceImpl implements CompilationService {
     public List<CompilationResponseDto> getAll(Boolean pinned, Integer from, Integer size) {
         Pageable pageable = PageRequest.of(from / size, size);
         log.info("Get compilations with params pinned={}, from={}, size={}", pinned, from, size);
+        long generation = compilationCache.generation();
         List<Compilation> compilations = (pinned != null)
                 ? compilationRepository.findAllByPinnedIs(pinned, pageable)
-                : compilationRepository.findAll(pageable).toList();
+                : compilationRepository.findAllBy(pageable);
+
+        Map<Long, CompilationResponseDto> dtos = new HashMap<>(compilationCache.getAll(compilations.stream()
+                .map(Compilation::getId)
+                .collect(Collectors.toList())));
+        List<Compilation> missing = compilations.stream()
+                .filter(c -> !dtos.containsKey(c.getId()))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            toCompilationDtos(missing).forEach(c -> {
+                compilationCache.put(c, generation);
+                dtos.put(c.getId(), c);
+            });
+        }
 
         return compilations.stream()
-                .map(c -> compilationMapper.toCompilationDto(c, findViewsAndRequestsForEvents(c.getEvents())))
+                .map(c -> dtos.get(c.getId()))
                 .collect(Collectors.toList());
     }
 
-    private List<EventShortDto> findViewsAndRequestsForEvents(Set<Event> events) {
-        Map<Long, Long> views = statService.getViews(new ArrayList<>(events));
-        Map<Long, Long> confirmedRequests = statService.getConfirmedRequests(new ArrayList<>(events));
+    private List<CompilationResponseDto> toCompilationDtos(List<Compilation> compilations) {
+        return toCompilationDtos(compilations, findEventsByCompilation(compilations));
+    }
 
-        return events.stream()
-                .map(e -> eventMapper.toEventShortDto(
-                        e,
-                        confirmedRequests.getOrDefault(e.getId(), 0L),
-                        views.getOrDefault(e.getId(), 0L)))
+    /**
+     * Renders compilations with a single views lookup and a single confirmed requests lookup
+     * for all of their events together.
+     */
+    private List<CompilationResponseDto> toCompilationDtos(List<Compilation> compilations,
+                                                           Map<Long, List<Event>> eventsByCompilation) {
+        Map<Long, Event> events = new LinkedHashMap<>();
+        eventsByCompilation.values().forEach(es -> es.forEach(e -> events.putIfAbsent(e.getId(), e)));
+        List<Event> allEvents = new ArrayList<>(events.values());
+        Map<Long, Long> views = statService.getViews(allEvents);
+        Map<Long, Long> confirmedRequests = statService.getConfirmedRequests(allEvents);
+
+        Map<Long, EventShortDto> eventDtos = new HashMap<>();
+        allEvents.forEach(e -> eventDtos.put(e.getId(), eventMapper.toEventShortDto(
+                e,
+                confirmedRequests.getOrDefault(e.getId(), 0L),
+                views.getOrDefault(e.getId(), 0L))));
+
+        return compilations.stream()
+                .map(c -> compilationMapper.toCompilationDto(c, eventsByCompilation
+                        .getOrDefault(c.getId(), Collections.emptyList()).stream()
+                        .map(e -> eventDtos.get(e.getId()))
+                        .collect(Collectors.toList())))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Loads the events of all given compilations with two queries, the join table and then the events
+     * with their associations, instead of initializing every lazy collection on its own.
+     */
+    private Map<Long, List<Event>> findEventsByCompilation(List<Compilation> compilations) {
+        List<CompilationEventDto> links = compilationRepository.findCompilationEvents(compilations.stream()
+                .map(Compilation::getId)
+                .collect(Collectors.toList()));
+        if (links.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Event> events = eventRepository.findEventsByIdIn(links.stream()
+                        .map(CompilationEventDto::getEventId)
+                        .distinct()
+                        .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+
+        Map<Long, List<Event>> eventsByCompilation = new HashMap<>();
+        links.forEach(l -> eventsByCompilation.computeIfAbsent(l.getCompilationId(), id -> new ArrayList<>())
+                .add(events.get(l.getEventId())));
+        return eventsByCompilation;
+    }
+
     private Compilation checkIfCompExistsAndGet(Long compId) {
         return compilationRepository.findById(compId)
                 .orElseThrow(() -> new EntityNotFoundException(Compilation.class, compId));
@@ -1,6 +1,7 @@
 package isthatkirill.main.event.controller;
 
 
+import isthatkirill.main.event.dto.ConfirmedRequestsDriftDto;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.UpdateEventDto;
 import isthatkirill.main.event.model.EventState;
@@ -9,6 +10,7 @@ import isthatkirill.main.util.Formats;
 import isthatkirill.main.validation.group.OnUpdateAdmin;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -32,14 +34,21 @@ public class AdminEventController {
     }
 
     @GetMapping
-    public List<EventFullDto> getAllEventsByAdmin(@RequestParam(required = false) List<Long> users,
-                                                  @RequestParam(required = false) List<EventState> states,
-                                                  @RequestParam(required = false) List<Long> categories,
-                                                  @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeStart,
-                                                  @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeEnd,
-                                                  @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
-                                                  @RequestParam(required = false, defaultValue = "10") @Positive Integer size) {
-        return eventService.getAllEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
+    public ResponseEntity<List<EventFullDto>> getAllEventsByAdmin(@RequestParam(required = false) List<Long> users,
+                                                                  @RequestParam(required = false) List<EventState> states,
+                                                                  @RequestParam(required = false) List<Long> categories,
+                                                                  @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeStart,
+                                                                  @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeEnd,
+                                                                  @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
+                                                                  @RequestParam(required = false, defaultValue = "10") @Positive Integer size,
+                                                                  @RequestParam(required = false) String cursor) {
+        return eventService.getAllEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size, cursor)
+                .toResponseEntity();
+    }
+
+    @PostMapping("/confirmed-requests/reconcile")
+    public List<ConfirmedRequestsDriftDto> reconcileConfirmedRequests() {
+        return eventService.reconcileConfirmedRequests();
     }
 
 }
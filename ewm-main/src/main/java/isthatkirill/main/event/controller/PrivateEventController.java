@@ -1,24 +1,30 @@
 package isthatkirill.main.event.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.EventShortDto;
 import isthatkirill.main.event.dto.NewEventDto;
 import isthatkirill.main.event.dto.UpdateEventDto;
 import isthatkirill.main.event.service.EventService;
+import isthatkirill.main.request.controller.RequestExportWriter;
 import isthatkirill.main.request.dto.EventRequestStatusUpdateRequestDto;
 import isthatkirill.main.request.dto.EventRequestStatusUpdateResultDto;
 import isthatkirill.main.request.dto.ParticipationRequestDto;
+import isthatkirill.main.request.model.RequestExportFormat;
 import isthatkirill.main.request.service.RequestService;
 import isthatkirill.main.validation.group.OnCreate;
 import isthatkirill.main.validation.group.OnUpdate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
 import java.util.List;
 
 @Validated
@@ -29,6 +35,7 @@ public class PrivateEventController {
 
     private final EventService eventService;
     private final RequestService requestService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -37,10 +44,11 @@ public class PrivateEventController {
     }
 
     @GetMapping
-    public List<EventShortDto> getAllByInitiatorId(@PathVariable Long userId,
-                                                   @RequestParam(defaultValue = "0", required = false) @PositiveOrZero Integer from,
-                                                   @RequestParam(defaultValue = "10", required = false) @Positive Integer size) {
-        return eventService.getAllByInitiatorId(userId, from, size);
+    public ResponseEntity<List<EventShortDto>> getAllByInitiatorId(@PathVariable Long userId,
+                                                                   @RequestParam(defaultValue = "0", required = false) @PositiveOrZero Integer from,
+                                                                   @RequestParam(defaultValue = "10", required = false) @Positive Integer size,
+                                                                   @RequestParam(required = false) String cursor) {
+        return eventService.getAllByInitiatorId(userId, from, size, cursor).toResponseEntity();
     }
 
     @GetMapping("/{eventId}")
@@ -63,8 +71,19 @@ public class PrivateEventController {
     }
 
     @GetMapping("/{eventId}/requests")
-    public List<ParticipationRequestDto> getRequestsByInitiator(@PathVariable Long userId, @PathVariable Long eventId) {
-        return requestService.getRequestsByInitiator(userId, eventId);
+    public List<ParticipationRequestDto> getRequestsByInitiator(@PathVariable Long userId, @PathVariable Long eventId,
+                                                                @RequestParam(defaultValue = "0", required = false) @PositiveOrZero Integer from,
+                                                                @RequestParam(required = false) @Positive Integer size) {
+        return requestService.getRequestsByInitiator(userId, eventId, from, size);
+    }
+
+    @GetMapping("/{eventId}/requests/export")
+    public void exportRequestsByInitiator(@PathVariable Long userId, @PathVariable Long eventId,
+                                          @RequestParam(defaultValue = "NDJSON", required = false) RequestExportFormat format,
+                                          HttpServletResponse response) throws IOException {
+        RequestExportWriter writer = new RequestExportWriter(response, format, objectMapper, "event-" + eventId + "-requests");
+        requestService.forEachRequestByInitiator(userId, eventId, writer);
+        writer.finish();
     }
 
 }
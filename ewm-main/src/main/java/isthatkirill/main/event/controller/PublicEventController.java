@@ -7,6 +7,7 @@ import isthatkirill.main.event.service.EventService;
 import isthatkirill.main.util.Formats;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -30,18 +31,22 @@ public class PublicEventController {
     }
 
     @GetMapping
-    public List<EventShortDto> getAllEventsByPublic(@RequestParam(required = false) String text,
-                                                    @RequestParam(required = false) List<Long> categories,
-                                                    @RequestParam(required = false) Boolean paid,
-                                                    @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeStart,
-                                                    @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeEnd,
-                                                    @RequestParam(required = false, defaultValue = "false") Boolean onlyAvailable,
-                                                    @RequestParam(required = false) EventSort sort,
-                                                    @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
-                                                    @RequestParam(required = false, defaultValue = "10") @Positive Integer size,
-                                                    HttpServletRequest request) {
-        return eventService.getAllEventsByPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort,
-                from, size, request.getRequestURI(), request.getRemoteAddr());
+    public ResponseEntity<List<EventShortDto>> getAllEventsByPublic(@RequestParam(required = false) String text,
+                                                                    @RequestParam(required = false) List<Long> categories,
+                                                                    @RequestParam(required = false) Boolean paid,
+                                                                    @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeStart,
+                                                                    @RequestParam(required = false) @DateTimeFormat(pattern = Formats.DATE_PATTERN) LocalDateTime rangeEnd,
+                                                                    @RequestParam(required = false, defaultValue = "false") Boolean onlyAvailable,
+                                                                    @RequestParam(required = false) Float lat,
+                                                                    @RequestParam(required = false) Float lon,
+                                                                    @RequestParam(required = false) Float radius,
+                                                                    @RequestParam(required = false) EventSort sort,
+                                                                    @RequestParam(required = false, defaultValue = "0") @PositiveOrZero Integer from,
+                                                                    @RequestParam(required = false, defaultValue = "10") @Positive Integer size,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    HttpServletRequest request) {
+        return eventService.getAllEventsByPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, lat, lon,
+                radius, sort, from, size, cursor, request.getRequestURI(), request.getRemoteAddr()).toResponseEntity();
     }
 
 }
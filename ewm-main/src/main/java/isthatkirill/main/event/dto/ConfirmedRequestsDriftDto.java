@@ -0,0 +1,18 @@
+package isthatkirill.main.event.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ConfirmedRequestsDriftDto {
+
+    Long eventId;
+    Long stored;
+    Long actual;
+
+}
@@ -0,0 +1,32 @@
+package isthatkirill.main.event.dto;
+
+import isthatkirill.main.event.model.EventPublication;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat read model for short event listings, selected by a constructor expression
+ * without loading {@code Event} entities into the persistence context.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EventShortView implements EventPublication {
+
+    Long id;
+    String annotation;
+    Long categoryId;
+    String categoryName;
+    Long confirmedRequests;
+    LocalDateTime eventDate;
+    Long initiatorId;
+    String initiatorName;
+    Boolean paid;
+    String title;
+    LocalDateTime publishedOn;
+    Long rankedViews;
+
+}
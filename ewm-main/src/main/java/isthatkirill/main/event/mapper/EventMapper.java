@@ -4,6 +4,7 @@ import isthatkirill.main.category.mapper.CategoryMapper;
 import isthatkirill.main.category.model.Category;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.EventShortDto;
+import isthatkirill.main.event.dto.EventShortView;
 import isthatkirill.main.event.dto.NewEventDto;
 import isthatkirill.main.event.model.Event;
 import isthatkirill.main.event.model.EventState;
@@ -23,11 +24,25 @@ public interface EventMapper {
 
     @Mapping(target = "createdOn", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "confirmedRequests", ignore = true)
+    @Mapping(target = "views", ignore = true)
     @Mapping(target = "category", source = "category")
+    @Mapping(target = "location", source = "location")
     Event toEvent(NewEventDto newEventDto, User initiator, Category category, Location location, EventState state);
 
+    @Mapping(target = "confirmedRequests", source = "confirmedRequests")
+    @Mapping(target = "views", source = "views")
     EventFullDto toEventFullDto(Event event, Long confirmedRequests, Long views);
 
+    @Mapping(target = "confirmedRequests", source = "confirmedRequests")
+    @Mapping(target = "views", source = "views")
     EventShortDto toEventShortDto(Event event, Long confirmedRequests, Long views);
 
+    @Mapping(target = "category.id", source = "view.categoryId")
+    @Mapping(target = "category.name", source = "view.categoryName")
+    @Mapping(target = "initiator.id", source = "view.initiatorId")
+    @Mapping(target = "initiator.name", source = "view.initiatorName")
+    @Mapping(target = "views", source = "views")
+    EventShortDto toEventShortDto(EventShortView view, Long views);
+
 }
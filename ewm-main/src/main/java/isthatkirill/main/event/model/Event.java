@@ -19,7 +19,7 @@ import java.time.LocalDateTime;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Event {
+public class Event implements EventPublication {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -56,7 +56,15 @@ public class Event {
     @Enumerated(EnumType.STRING)
     EventState state;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @Builder.Default
+    @Column(name = "confirmed_requests", nullable = false, updatable = false)
+    Long confirmedRequests = 0L;
+
+    @Builder.Default
+    @Column(name = "views", nullable = false, updatable = false)
+    Long views = 0L;
+
+    @ManyToOne
     @JoinColumn(name = "location_id", referencedColumnName = "id")
     Location location;
 
@@ -0,0 +1,71 @@
+package isthatkirill.main.event.model;
+
+import isthatkirill.main.event.dto.EventShortView;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort key and id of the last event of a page.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EventCursor {
+
+    private static final String SEPARATOR = "|";
+
+    Key key;
+    LocalDateTime eventDate;
+    Long views;
+    Long id;
+
+    public enum Key {
+        ID, EVENT_DATE, VIEWS
+    }
+
+    public static EventCursor after(Event event, Key key) {
+        return new EventCursor(key,
+                key == Key.EVENT_DATE ? event.getEventDate() : null,
+                key == Key.VIEWS ? event.getViews() : null,
+                event.getId());
+    }
+
+    public static EventCursor after(EventShortView event, Key key) {
+        return new EventCursor(key,
+                key == Key.EVENT_DATE ? event.getEventDate() : null,
+                key == Key.VIEWS ? event.getRankedViews() : null,
+                event.getId());
+    }
+
+    public static EventCursor decode(String token, Key expectedKey) {
+        EventCursor cursor;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+            Key key = Key.valueOf(parts[0]);
+            LocalDateTime eventDate = key == Key.EVENT_DATE ? LocalDateTime.parse(parts[1]) : null;
+            Long views = key == Key.VIEWS ? Long.valueOf(parts[1]) : null;
+            cursor = new EventCursor(key, eventDate, views, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalStateException("Invalid cursor");
+        }
+        if (cursor.key != expectedKey) {
+            throw new IllegalStateException("Cursor does not match the requested sort");
+        }
+        return cursor;
+    }
+
+    public String encode() {
+        Object sortValue = key == Key.EVENT_DATE ? eventDate : key == Key.VIEWS ? views : "";
+        String value = key + SEPARATOR + sortValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
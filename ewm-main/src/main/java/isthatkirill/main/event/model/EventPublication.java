@@ -0,0 +1,14 @@
+package isthatkirill.main.event.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * What view counting needs to know about an event: its id and when it was published.
+ */
+public interface EventPublication {
+
+    Long getId();
+
+    LocalDateTime getPublishedOn();
+
+}
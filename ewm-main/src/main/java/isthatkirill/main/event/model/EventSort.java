@@ -1,5 +1,5 @@
 package isthatkirill.main.event.model;
 
 public enum EventSort {
-    EVENT_DATE, VIEWS
+    EVENT_DATE, VIEWS, RELEVANCE, DISTANCE
 }
@@ -0,0 +1,22 @@
+package isthatkirill.main.event.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the views ranking reads per event: the publication it counts from and the views stored last time.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EventViews implements EventPublication {
+
+    Long id;
+    LocalDateTime publishedOn;
+    Long views;
+
+}
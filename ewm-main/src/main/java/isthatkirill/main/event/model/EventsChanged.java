@@ -0,0 +1,19 @@
+package isthatkirill.main.event.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Application event published when events change in a way that is visible in their short representation.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EventsChanged {
+
+    private final List<Long> eventIds;
+
+}
@@ -1,8 +1,11 @@
 package isthatkirill.main.event.repository;
 
+import isthatkirill.main.event.dto.EventShortView;
 import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventCursor;
 import isthatkirill.main.event.model.EventSort;
 import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.location.model.GeoRadius;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -10,9 +13,12 @@ import java.util.List;
 public interface CustomEventRepository {
 
     List<Event> findEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
-                                  LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size);
+                                  LocalDateTime rangeStart, LocalDateTime rangeEnd, EventCursor cursor, Integer from,
+                                  Integer size);
 
-    List<Event> findEventsByPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                                   LocalDateTime rangeEnd, Integer from, Integer size, EventSort sort);
+    List<EventShortView> findEventShortViewsByPublic(String text, List<Long> categories, Boolean paid,
+                                                     LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                     Boolean onlyAvailable, GeoRadius area, EventCursor cursor,
+                                                     Integer from, Integer size, EventSort sort);
 
 }
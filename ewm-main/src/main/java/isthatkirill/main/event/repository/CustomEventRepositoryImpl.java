@@ -1,17 +1,32 @@
 package isthatkirill.main.event.repository;
 
+import isthatkirill.main.category.model.Category;
+import isthatkirill.main.event.dto.EventShortView;
 import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventCursor;
 import isthatkirill.main.event.model.EventSort;
 import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.location.model.GeoRadius;
+import isthatkirill.main.location.model.Location;
+import isthatkirill.main.user.model.User;
+import isthatkirill.main.util.Databases;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 
 public class CustomEventRepositoryImpl implements CustomEventRepository {
@@ -19,12 +34,16 @@ public class CustomEventRepositoryImpl implements CustomEventRepository {
     @PersistenceContext
     private EntityManager entityManager;
 
+    private Boolean postgresql;
+
     @Override
     public List<Event> findEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
-                                         LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size) {
+                                         LocalDateTime rangeStart, LocalDateTime rangeEnd, EventCursor cursor,
+                                         Integer from, Integer size) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Event> query = cb.createQuery(Event.class);
         Root<Event> root = query.from(Event.class);
+        fetchAssociations(root);
         Predicate predicate = cb.conjunction();
 
         if (users != null && !users.isEmpty()) {
@@ -39,26 +58,63 @@ public class CustomEventRepositoryImpl implements CustomEventRepository {
         if (rangeStart != null && rangeEnd != null) {
             predicate = cb.and(predicate, cb.between(root.get("eventDate"), rangeStart, rangeEnd));
         }
+        if (cursor != null) {
+            predicate = cb.and(predicate, seek(cb, root, cursor));
+        }
 
         return entityManager
-                .createQuery(query.select(root).where(predicate))
-                .setFirstResult(from)
+                .createQuery(query.select(root).where(predicate).orderBy(cb.asc(root.get("id"))))
+                .setFirstResult(cursor == null ? from : 0)
                 .setMaxResults(size)
                 .getResultList();
     }
 
     @Override
-    public List<Event> findEventsByPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                                          LocalDateTime rangeEnd, Integer from, Integer size, EventSort sort) {
+    public List<EventShortView> findEventShortViewsByPublic(String text, List<Long> categories, Boolean paid,
+                                                            LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                            Boolean onlyAvailable, GeoRadius area,
+                                                            EventCursor cursor, Integer from, Integer size,
+                                                            EventSort sort) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Event> query = cb.createQuery(Event.class);
+        CriteriaQuery<EventShortView> query = cb.createQuery(EventShortView.class);
         Root<Event> root = query.from(Event.class);
+        Join<Event, Category> category = root.join("category", JoinType.LEFT);
+        Join<Event, User> initiator = root.join("initiator", JoinType.LEFT);
+        Join<Event, Location> location = area == null ? null : root.join("location", JoinType.LEFT);
+        List<Order> orders = new ArrayList<>();
+        Predicate predicate = publicPredicate(cb, root, location, orders, text, categories, paid, rangeStart,
+                rangeEnd, onlyAvailable, area, cursor, sort);
+        query.select(cb.construct(EventShortView.class,
+                        root.get("id"),
+                        root.get("annotation"),
+                        category.get("id"),
+                        category.get("name"),
+                        root.get("confirmedRequests"),
+                        root.get("eventDate"),
+                        initiator.get("id"),
+                        initiator.get("name"),
+                        root.get("paid"),
+                        root.get("title"),
+                        root.get("publishedOn"),
+                        root.get("views")))
+                .where(predicate)
+                .orderBy(orders);
+
+        return entityManager
+                .createQuery(query)
+                .setFirstResult(cursor == null ? from : 0)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    private Predicate publicPredicate(CriteriaBuilder cb, Root<Event> root, Path<Location> location,
+                                      List<Order> orders, String text, List<Long> categories, Boolean paid,
+                                      LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
+                                      GeoRadius area, EventCursor cursor, EventSort sort) {
         Predicate predicate = cb.conjunction();
 
         if (text != null && !text.isBlank()) {
-            Predicate annotation = cb.like(cb.lower(root.get("annotation")), "%" + text.toLowerCase() + "%");
-            Predicate description = cb.like(cb.lower(root.get("description")), "%" + text.toLowerCase() + "%");
-            predicate = cb.and(predicate, cb.or(annotation, description));
+            predicate = cb.and(predicate, textPredicate(cb, root, orders, text, sort));
         }
 
         if (categories != null && !categories.isEmpty()) {
@@ -75,17 +131,138 @@ public class CustomEventRepositoryImpl implements CustomEventRepository {
         }
 
         predicate = cb.and(predicate, cb.equal(root.get("state"), EventState.PUBLISHED));
+        if (Boolean.TRUE.equals(onlyAvailable)) {
+            predicate = cb.and(predicate, cb.or(
+                    cb.equal(root.get("participantLimit"), 0),
+                    cb.greaterThan(root.get("participantLimit"), root.get("confirmedRequests"))));
+        }
+        if (area != null) {
+            predicate = cb.and(predicate, withinRadius(cb, location, area));
+        }
+        if (cursor != null) {
+            predicate = cb.and(predicate, seek(cb, root, cursor));
+        }
 
-        query.select(root).where(predicate);
-        if (sort != null && sort.equals(EventSort.EVENT_DATE)) {
-            query.orderBy(cb.asc(root.get("eventDate")));
+        if (sort == EventSort.DISTANCE && area != null) {
+            orders.add(cb.asc(distanceSquared(cb, location, area)));
+        } else if (sort == EventSort.EVENT_DATE || sort == EventSort.RELEVANCE) {
+            orders.add(cb.asc(root.get("eventDate")));
+        } else if (sort == EventSort.VIEWS) {
+            orders.add(cb.asc(root.get("views")));
         }
+        orders.add(cb.asc(root.get("id")));
+        return predicate;
+    }
 
-        return entityManager
-                .createQuery(query)
-                .setFirstResult(from)
-                .setMaxResults(size)
-                .getResultList();
+    /**
+     * On PostgreSQL a query of several words is a full-text match of every word as a prefix, in any order,
+     * so "boot spring" finds "Spring Boot" but not "SpringBoot". A single word, and any query elsewhere, keeps
+     * the substring LIKE match, which the trigram indexes serve on PostgreSQL, so "boot" still finds "SpringBoot".
+     * RELEVANCE orders by ts_rank on PostgreSQL and puts annotation matches first elsewhere.
+     */
+    private Predicate textPredicate(CriteriaBuilder cb, Root<Event> root, List<Order> orders, String text,
+                                    EventSort sort) {
+        String tsQuery = toTsQuery(text);
+        boolean fullText = isPostgreSql() && !tsQuery.isEmpty();
+        Expression<String> searchQuery = cb.literal(tsQuery);
+        if (fullText && sort == EventSort.RELEVANCE) {
+            orders.add(cb.desc(cb.function("fts_rank", Double.class,
+                    root.get("annotation"), root.get("description"), searchQuery)));
+        }
+        if (fullText && words(text).size() > 1) {
+            return cb.isTrue(cb.function("fts_match", Boolean.class,
+                    root.get("annotation"), root.get("description"), searchQuery));
+        }
+
+        Predicate annotation = cb.like(cb.lower(root.get("annotation")), "%" + text.toLowerCase() + "%");
+        Predicate description = cb.like(cb.lower(root.get("description")), "%" + text.toLowerCase() + "%");
+        if (!fullText && sort == EventSort.RELEVANCE) {
+            orders.add(cb.asc(cb.<Integer>selectCase().when(annotation, 0).otherwise(1)));
+        }
+        return cb.or(annotation, description);
+    }
+
+    private Path<Location> fetchAssociations(Root<Event> root) {
+        root.fetch("initiator", JoinType.LEFT);
+        root.fetch("category", JoinType.LEFT);
+        return (Join<Event, Location>) root.<Event, Location>fetch("location", JoinType.LEFT);
+    }
+
+    /**
+     * Narrows by the indexed grid cells first, then by the bounding box and finally by the exact distance.
+     */
+    private Predicate withinRadius(CriteriaBuilder cb, Path<Location> location, GeoRadius area) {
+        Predicate predicate = cb.and(
+                cb.between(location.get("lat"), Math.nextDown((float) area.getMinLat()),
+                        Math.nextUp((float) area.getMaxLat())),
+                cb.or(area.getLonRanges().stream()
+                        .map(range -> cb.between(location.<Float>get("lon"), Math.nextDown((float) range[0]),
+                                Math.nextUp((float) range[1])))
+                        .toArray(Predicate[]::new)),
+                cb.le(distanceSquared(cb, location, area), Math.nextUp((float) area.getMaxDistanceSquared())));
+
+        List<long[]> cellRanges = area.getCellRanges();
+        if (!cellRanges.isEmpty()) {
+            Predicate cells = cb.or(cellRanges.stream()
+                    .map(range -> cb.between(location.<Long>get("cell"), range[0], range[1]))
+                    .toArray(Predicate[]::new));
+            predicate = cb.and(cells, predicate);
+        }
+        return predicate;
+    }
+
+    /**
+     * Longitude differences are wrapped into [-180, 180] when the circle crosses the antimeridian.
+     */
+    private Expression<Float> distanceSquared(CriteriaBuilder cb, Path<Location> location, GeoRadius area) {
+        Expression<Float> dLat = cb.diff(location.get("lat"), (float) area.getLat());
+        Expression<Float> lonDiff = cb.diff(location.<Float>get("lon"), (float) area.getLon());
+        if (area.crossesAntimeridian()) {
+            lonDiff = cb.<Float>selectCase()
+                    .when(cb.gt(lonDiff, 180f), cb.diff(lonDiff, 360f))
+                    .when(cb.lt(lonDiff, -180f), cb.sum(lonDiff, 360f))
+                    .otherwise(lonDiff);
+        }
+        Expression<Float> dLon = cb.prod(lonDiff, (float) area.getLonScale());
+        return cb.sum(cb.prod(dLat, dLat), cb.prod(dLon, dLon));
+    }
+
+    private Predicate seek(CriteriaBuilder cb, Root<Event> root, EventCursor cursor) {
+        Predicate afterId = cb.greaterThan(root.get("id"), cursor.getId());
+        switch (cursor.getKey()) {
+            case EVENT_DATE:
+                return cb.or(
+                        cb.greaterThan(root.get("eventDate"), cursor.getEventDate()),
+                        cb.and(cb.equal(root.get("eventDate"), cursor.getEventDate()), afterId));
+            case VIEWS:
+                return cb.or(
+                        cb.greaterThan(root.get("views"), cursor.getViews()),
+                        cb.and(cb.equal(root.get("views"), cursor.getViews()), afterId));
+            default:
+                return afterId;
+        }
+    }
+
+    private boolean isPostgreSql() {
+        if (postgresql == null) {
+            postgresql = Databases.isPostgreSql(entityManager);
+        }
+        return postgresql;
+    }
+
+    /**
+     * Turns free text into a prefix tsquery, e.g. "Spring conf" becomes "spring:* & conf:*".
+     */
+    static String toTsQuery(String text) {
+        return words(text).stream()
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    private static List<String> words(String text) {
+        return Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
     }
 
 }
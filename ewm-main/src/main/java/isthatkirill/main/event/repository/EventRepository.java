@@ -1,9 +1,14 @@
 package isthatkirill.main.event.repository;
 
+import isthatkirill.main.event.dto.ConfirmedRequestsDriftDto;
 import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.event.model.EventViews;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -14,8 +19,12 @@ import java.util.Optional;
 @Repository
 public interface EventRepository extends JpaRepository<Event, Long>, CustomEventRepository {
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     List<Event> findEventsByInitiatorId(Long userId, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
+    List<Event> findEventsByInitiatorIdAndIdGreaterThan(Long userId, Long id, Pageable pageable);
+
     @Lock(LockModeType.OPTIMISTIC)
     @Query("SELECT e FROM Event e " +
             "WHERE e.id = ?1 and e.initiator.id = ?2")
@@ -26,15 +35,57 @@ public interface EventRepository extends JpaRepository<Event, Long>, CustomEvent
             "WHERE e.id = ?1 ")
     Optional<Event> findByIdAndLock(Long eventId);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     @Query("SELECT e FROM Event e " +
             "WHERE e.state = 'PUBLISHED' AND " +
             "e.id = ?1")
     Optional<Event> getEventIfPublished(Long eventId);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     List<Event> findEventsByIdIn(List<Long> ids);
 
+    @Query("SELECT new isthatkirill.main.event.model.EventViews(e.id, e.publishedOn, e.views) " +
+            "FROM Event e " +
+            "WHERE e.state = ?1 AND e.id > ?2")
+    List<EventViews> findEventViewsByStateAndIdGreaterThan(EventState state, Long id, Pageable pageable);
+
     List<Event> findEventsByCategoryId(Long catId);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     Optional<Event> findEventByIdAndInitiatorId(Long eventId, Long userId);
 
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Event e " +
+            "SET e.confirmedRequests = e.confirmedRequests + ?2 " +
+            "WHERE e.id = ?1")
+    int addConfirmedRequests(Long eventId, Long delta);
+
+    @Query("SELECT new isthatkirill.main.event.dto.ConfirmedRequestsDriftDto(e.id, e.confirmedRequests, " +
+            "(SELECT count(r) FROM Request r WHERE r.event.id = e.id AND r.status = 'CONFIRMED')) " +
+            "FROM Event e " +
+            "WHERE e.confirmedRequests <> " +
+            "(SELECT count(r) FROM Request r WHERE r.event.id = e.id AND r.status = 'CONFIRMED') " +
+            "ORDER BY e.id")
+    List<ConfirmedRequestsDriftDto> findConfirmedRequestsDrift();
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Event e " +
+            "SET e.confirmedRequests = e.confirmedRequests + ?2 " +
+            "WHERE e.id = ?1 AND " +
+            "(e.participantLimit = 0 OR e.confirmedRequests + ?2 <= e.participantLimit)")
+    int admitConfirmedRequests(Long eventId, Long count);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Event e " +
+            "SET e.confirmedRequests = " +
+            "(SELECT count(r) FROM Request r WHERE r.event.id = e.id AND r.status = 'CONFIRMED') " +
+            "WHERE e.id IN ?1")
+    int recountConfirmedRequests(List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Event e " +
+            "SET e.views = ?2 " +
+            "WHERE e.id = ?1")
+    int updateViews(Long eventId, Long views);
+
 }
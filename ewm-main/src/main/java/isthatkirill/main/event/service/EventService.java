@@ -1,11 +1,13 @@
 package isthatkirill.main.event.service;
 
+import isthatkirill.main.event.dto.ConfirmedRequestsDriftDto;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.EventShortDto;
 import isthatkirill.main.event.dto.NewEventDto;
 import isthatkirill.main.event.dto.UpdateEventDto;
 import isthatkirill.main.event.model.EventSort;
 import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.util.CursorPage;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,7 +16,7 @@ public interface EventService {
 
     EventFullDto create(NewEventDto newEventDto, Long userId);
 
-    List<EventShortDto> getAllByInitiatorId(Long userId, Integer from, Integer size);
+    CursorPage<EventShortDto> getAllByInitiatorId(Long userId, Integer from, Integer size, String cursor);
 
     EventFullDto updateByInitiator(UpdateEventDto updatedEvent, Long eventId, Long userId);
 
@@ -22,13 +24,17 @@ public interface EventService {
 
     EventFullDto updateByAdmin(UpdateEventDto updatedEvent, Long eventId);
 
-    List<EventFullDto> getAllEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories, LocalDateTime rangeStart,
-                                           LocalDateTime rangeEnd, Integer from, Integer size);
+    CursorPage<EventFullDto> getAllEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
+                                                 LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size,
+                                                 String cursor);
 
     EventFullDto getEventByPublic(Long eventId, String uri, String ip);
 
-    List<EventShortDto> getAllEventsByPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                                             LocalDateTime rangeEnd, Boolean onlyAvailable, EventSort sort, Integer from,
-                                             Integer size, String uri, String ip);
+    CursorPage<EventShortDto> getAllEventsByPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
+                                                   LocalDateTime rangeEnd, Boolean onlyAvailable, Float lat, Float lon,
+                                                   Float radius, EventSort sort, Integer from, Integer size, String cursor,
+                                                   String uri, String ip);
+
+    List<ConfirmedRequestsDriftDto> reconcileConfirmedRequests();
 
 }
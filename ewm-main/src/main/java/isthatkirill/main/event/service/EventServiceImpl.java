@@ -4,25 +4,31 @@ import isthatkirill.main.category.model.Category;
 import isthatkirill.main.category.repository.CategoryRepository;
 import isthatkirill.main.error.exception.EntityNotFoundException;
 import isthatkirill.main.error.exception.ForbiddenException;
+import isthatkirill.main.event.dto.ConfirmedRequestsDriftDto;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.EventShortDto;
+import isthatkirill.main.event.dto.EventShortView;
 import isthatkirill.main.event.dto.NewEventDto;
 import isthatkirill.main.event.dto.UpdateEventDto;
 import isthatkirill.main.event.mapper.EventMapper;
 import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventCursor;
 import isthatkirill.main.event.model.EventSort;
 import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.event.model.EventsChanged;
 import isthatkirill.main.event.repository.EventRepository;
-import isthatkirill.main.location.mapper.LocationMapper;
+import isthatkirill.main.location.model.GeoRadius;
 import isthatkirill.main.location.model.Location;
-import isthatkirill.main.location.repository.LocationRepository;
-import isthatkirill.main.request.repository.RequestRepository;
+import isthatkirill.main.location.service.LocationService;
 import isthatkirill.main.user.model.User;
 import isthatkirill.main.user.repository.UserRepository;
+import isthatkirill.main.util.CursorPage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,13 +42,12 @@ import java.util.stream.Collectors;
 public class EventServiceImpl implements EventService {
 
     private final CategoryRepository categoryRepository;
-    private final LocationRepository locationRepository;
+    private final LocationService locationService;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
-    private final RequestRepository requestRepository;
-    private final LocationMapper locationMapper;
     private final EventMapper eventMapper;
     private final StatService statService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -58,7 +63,7 @@ public class EventServiceImpl implements EventService {
         }
         User initiator = checkIfUserExistsAndGet(userId);
         Category category = checkIfCategoryExistsAndGet(newEventDto.getCategory());
-        Location location = findLocation(locationMapper.toLocation(newEventDto.getLocation()));
+        Location location = locationService.getOrCreate(newEventDto.getLocation());
 
         Event event = eventMapper.toEvent(newEventDto, initiator, category, location, EventState.PENDING);
         log.info("Create new event --> title={}, ", newEventDto.getTitle());
@@ -68,10 +73,18 @@ public class EventServiceImpl implements EventService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<EventShortDto> getAllByInitiatorId(Long userId, Integer from, Integer size) {
-        Pageable pageable = PageRequest.of(from / size, size);
-        log.info("Get events from={} size={} added by user with id={}", from, size, userId);
-        return mapToShortDtoWithViewsAndRequests(eventRepository.findEventsByInitiatorId(userId, pageable));
+    public CursorPage<EventShortDto> getAllByInitiatorId(Long userId, Integer from, Integer size, String cursor) {
+        log.info("Get events from={} size={} cursor={} added by user with id={}", from, size, cursor, userId);
+        List<Event> events;
+        if (cursor == null) {
+            Pageable pageable = PageRequest.of(from / size, size, Sort.by("id"));
+            events = eventRepository.findEventsByInitiatorId(userId, pageable);
+        } else {
+            Pageable pageable = PageRequest.of(0, size, Sort.by("id"));
+            Long afterId = EventCursor.decode(cursor, EventCursor.Key.ID).getId();
+            events = eventRepository.findEventsByInitiatorIdAndIdGreaterThan(userId, afterId, pageable);
+        }
+        return new CursorPage<>(mapToShortDtoWithViewsAndRequests(events), nextCursor(events, size, EventCursor.Key.ID));
     }
 
     @Override
@@ -98,6 +111,7 @@ public class EventServiceImpl implements EventService {
         }
 
         log.info("Update event with id={} by user id={}", eventId, userId);
+        eventPublisher.publishEvent(new EventsChanged(List.of(eventId)));
         return mapToFullDtoWithViewsAndRequests(eventRepository.save(event));
     }
 
@@ -109,7 +123,7 @@ public class EventServiceImpl implements EventService {
         updateNotNullFields(updatedEvent, event);
 
         if (updatedEvent.getParticipantLimit() != null) {
-            checkNewLimit(updatedEvent.getParticipantLimit(), requestRepository.getConfirmedRequests(eventId));
+            checkNewLimit(updatedEvent.getParticipantLimit(), event.getConfirmedRequests());
             event.setParticipantLimit(updatedEvent.getParticipantLimit());
         }
 
@@ -126,18 +140,21 @@ public class EventServiceImpl implements EventService {
         }
 
         log.info("Update event with id={} by admin", eventId);
+        eventPublisher.publishEvent(new EventsChanged(List.of(eventId)));
         return mapToFullDtoWithViewsAndRequests(eventRepository.save(event));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<EventFullDto> getAllEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
-                                                  LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size) {
-        log.info("Get events by admin with params: users={}, states={}, categories={}, start={}, end={}, from={}, size={}",
-                users, states, categories, rangeStart, rangeEnd, from, size);
-        return mapToFullDtoWithViewsAndRequests(
-                eventRepository.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size)
-        );
+    public CursorPage<EventFullDto> getAllEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
+                                                        LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from,
+                                                        Integer size, String cursor) {
+        log.info("Get events by admin with params: users={}, states={}, categories={}, start={}, end={}, from={}, size={}, " +
+                "cursor={}", users, states, categories, rangeStart, rangeEnd, from, size, cursor);
+        EventCursor after = cursor == null ? null : EventCursor.decode(cursor, EventCursor.Key.ID);
+        List<Event> events = eventRepository.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd, after,
+                from, size);
+        return new CursorPage<>(mapToFullDtoWithViewsAndRequests(events), nextCursor(events, size, EventCursor.Key.ID));
     }
 
     @Override
@@ -146,40 +163,52 @@ public class EventServiceImpl implements EventService {
         Event event = checkIfPublishedEventExistsAndGet(eventId);
         log.info("Get event with id={} by public", eventId);
         statService.hit(uri, ip);
-        return mapToFullDtoWithViewsAndRequests(event);
+        EventFullDto eventFullDto = mapToFullDtoWithViewsAndRequests(event);
+        eventFullDto.setViews(eventFullDto.getViews() + statService.getQueuedViews(uri));
+        return eventFullDto;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<EventShortDto> getAllEventsByPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                                                    LocalDateTime rangeEnd, Boolean onlyAvailable, EventSort sort, Integer from,
-                                                    Integer size, String uri, String ip) {
+    public CursorPage<EventShortDto> getAllEventsByPublic(String text, List<Long> categories, Boolean paid,
+                                                         LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                         Boolean onlyAvailable, Float lat, Float lon, Float radius,
+                                                         EventSort sort, Integer from, Integer size, String cursor,
+                                                         String uri, String ip) {
 
         checkIfStartBeforeEnd(rangeStart, rangeEnd);
-
-        List<Event> events = eventRepository.findEventsByPublic(text, categories, paid, rangeStart, rangeEnd, from, size, sort);
-
-        Map<Long, Integer> eventLimits = new HashMap<>();
-        events.forEach(e -> eventLimits.put(e.getId(), e.getParticipantLimit()));
-
-        List<EventShortDto> eventsWithViewsAndRequests = mapToShortDtoWithViewsAndRequests(events);
-
-        if (onlyAvailable) {
-            eventsWithViewsAndRequests = eventsWithViewsAndRequests.stream()
-                    .filter(e -> eventLimits.get(e.getId()) == 0 || eventLimits.get(e.getId()) > e.getConfirmedRequests())
-                    .collect(Collectors.toList());
+        GeoRadius area = toGeoRadius(lat, lon, radius);
+        if (sort == EventSort.DISTANCE && area == null) {
+            throw new IllegalStateException("DISTANCE sort requires lat, lon and radius params");
         }
 
-        if (sort != null && sort.equals(EventSort.VIEWS)) {
-            eventsWithViewsAndRequests.sort(Comparator.comparing(EventShortDto::getViews));
+        EventCursor.Key cursorKey = sort == EventSort.EVENT_DATE ? EventCursor.Key.EVENT_DATE
+                : sort == EventSort.VIEWS ? EventCursor.Key.VIEWS : EventCursor.Key.ID;
+        EventCursor after = null;
+        if (cursor != null) {
+            if (sort == EventSort.RELEVANCE || sort == EventSort.DISTANCE) {
+                throw new IllegalStateException("Cursor pagination is not supported for " + sort + " sort");
+            }
+            after = EventCursor.decode(cursor, cursorKey);
         }
 
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(text, categories, paid, rangeStart,
+                rangeEnd, onlyAvailable, area, after, from, size, sort);
+
+        Map<Long, Long> views = statService.getViews(events);
+        List<EventShortDto> eventsWithViewsAndRequests = events.stream()
+                .map(e -> eventMapper.toEventShortDto(e, views.getOrDefault(e.getId(), 0L)))
+                .collect(Collectors.toList());
+
         log.info("Get events by public with params: text={}, categories={}, paid={}, start={}, end={}, onlyAvailable={}," +
-                "sort={}, from={}, size={}", text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size);
+                "area={}, sort={}, from={}, size={}, cursor={}", text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, area, sort, from, size, cursor);
 
         statService.hit(uri, ip);
 
-        return eventsWithViewsAndRequests;
+        String nextCursor = sort == EventSort.RELEVANCE || sort == EventSort.DISTANCE || events.size() < size ? null
+                : EventCursor.after(events.get(events.size() - 1), cursorKey).encode();
+        return new CursorPage<>(eventsWithViewsAndRequests, nextCursor);
     }
 
     @Override
@@ -188,6 +217,30 @@ public class EventServiceImpl implements EventService {
         return mapToFullDtoWithViewsAndRequests(checkIfOwnEventExistsAndGet(eventId, userId));
     }
 
+    @Override
+    @Transactional
+    public List<ConfirmedRequestsDriftDto> reconcileConfirmedRequests() {
+        List<ConfirmedRequestsDriftDto> drift = eventRepository.findConfirmedRequestsDrift();
+        if (!drift.isEmpty()) {
+            drift.forEach(d -> log.warn("Confirmed requests drift for event id={}: stored={}, actual={}",
+                    d.getEventId(), d.getStored(), d.getActual()));
+            List<Long> eventIds = drift.stream()
+                    .map(ConfirmedRequestsDriftDto::getEventId)
+                    .collect(Collectors.toList());
+            eventRepository.recountConfirmedRequests(eventIds);
+            eventPublisher.publishEvent(new EventsChanged(eventIds));
+        }
+        log.info("Reconciled confirmed requests, {} events fixed", drift.size());
+        return drift;
+    }
+
+    private String nextCursor(List<Event> events, Integer size, EventCursor.Key key) {
+        if (events.size() < size) {
+            return null;
+        }
+        return EventCursor.after(events.get(events.size() - 1), key).encode();
+    }
+
     private Event checkIfOwnEventExistsAndGet(Long eventId, Long userId) {
         return eventRepository.findEventByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new EntityNotFoundException(Event.class, eventId));
@@ -237,7 +290,7 @@ public class EventServiceImpl implements EventService {
             event.setCategory(checkIfCategoryExistsAndGet(updatedEvent.getCategory()));
         }
         if (updatedEvent.getLocation() != null) {
-            event.setLocation(findLocation(locationMapper.toLocation(updatedEvent.getLocation())));
+            event.setLocation(locationService.getOrCreate(updatedEvent.getLocation()));
         }
         if (updatedEvent.getTitle() != null) {
             event.setTitle(updatedEvent.getTitle());
@@ -255,7 +308,7 @@ public class EventServiceImpl implements EventService {
     }
 
     private void checkIfUserExists(Long userId) {
-        if (!userRepository.existsById(userId)) {
+        if (userRepository.findById(userId).isEmpty()) {
             throw new EntityNotFoundException(User.class, userId);
         }
     }
@@ -271,6 +324,20 @@ public class EventServiceImpl implements EventService {
         }
     }
 
+    private GeoRadius toGeoRadius(Float lat, Float lon, Float radius) {
+        if (lat == null && lon == null && radius == null) {
+            return null;
+        }
+        if (lat == null || lon == null || radius == null) {
+            throw new IllegalStateException("Params lat, lon and radius should be specified together");
+        }
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180 || radius <= 0) {
+            throw new IllegalStateException("Incorrect area. Lat should be in [-90, 90], lon in [-180, 180] " +
+                    "and radius should be positive");
+        }
+        return new GeoRadius(lat, lon, radius);
+    }
+
     private Category checkIfCategoryExistsAndGet(Long catId) {
         return categoryRepository.findById(catId)
                 .orElseThrow(() -> new EntityNotFoundException(Category.class, catId));
@@ -298,9 +365,4 @@ public class EventServiceImpl implements EventService {
                 .orElseThrow(() -> new EntityNotFoundException(Event.class, eventId));
     }
 
-    private Location findLocation(Location location) {
-        return locationRepository.findByLatAndLon(location.getLat(), location.getLon())
-                .orElseGet(() -> locationRepository.save(location));
-    }
-
 }
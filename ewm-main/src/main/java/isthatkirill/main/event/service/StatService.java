@@ -1,6 +1,7 @@
 package isthatkirill.main.event.service;
 
 import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventPublication;
 
 import java.util.List;
 import java.util.Map;
@@ -9,7 +10,9 @@ public interface StatService {
 
     void hit(String uri, String ip);
 
-    Map<Long, Long> getViews(List<Event> events);
+    Map<Long, Long> getViews(List<? extends EventPublication> events);
+
+    long getQueuedViews(String uri);
 
     Map<Long, Long> getConfirmedRequests(List<Event> events);
 
@@ -0,0 +1,206 @@
+package isthatkirill.main.event.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import isthatkirill.main.event.model.EventPublication;
+import isthatkirill.stats.StatClient;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of unique views per event, counted up to a watermark that trails the clock by the flush lag.
+ * Stale entries only fetch IPs first seen after their watermark; entries older than max-age are reloaded.
+ */
+@Slf4j
+@Component
+public class ViewsCache implements MeterBinder {
+
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatClient statClient;
+    private final Duration staleness;
+    private final Duration watermarkLag;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final Map<Long, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    @Autowired
+    public ViewsCache(StatClient statClient,
+                      @Value("${views-cache.max-size:10000}") int maxSize,
+                      @Value("${views-cache.staleness-ms:10000}") long stalenessMs,
+                      @Value("${views-cache.watermark-lag-ms:5000}") long watermarkLagMs,
+                      @Value("${views-cache.max-age-ms:600000}") long maxAgeMs) {
+        this(statClient, maxSize, Duration.ofMillis(stalenessMs), Duration.ofMillis(watermarkLagMs),
+                Duration.ofMillis(maxAgeMs), Clock.systemDefaultZone());
+    }
+
+    ViewsCache(StatClient statClient, int maxSize, Duration staleness, Duration watermarkLag, Duration maxAge,
+               Clock clock) {
+        this.statClient = statClient;
+        this.staleness = staleness;
+        this.watermarkLag = watermarkLag;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ViewsCache.Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Map<Long, Long> getViews(List<? extends EventPublication> events) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<Long, Long> views = new HashMap<>();
+        List<EventPublication> missing = new ArrayList<>();
+        Map<LocalDateTime, List<EventPublication>> staleByWatermark = new HashMap<>();
+
+        synchronized (entries) {
+            for (EventPublication event : events) {
+                if (event.getPublishedOn() == null) {
+                    continue;
+                }
+                Entry entry = entries.get(event.getId());
+                if (entry == null || entry.loadedAt.plus(maxAge).isBefore(now)) {
+                    missing.add(event);
+                } else if (entry.refreshedAt.plus(staleness).isBefore(now)) {
+                    staleByWatermark.computeIfAbsent(entry.watermark, w -> new ArrayList<>()).add(event);
+                } else {
+                    views.put(event.getId(), entry.views);
+                }
+            }
+        }
+        hits.addAndGet(views.size());
+
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            views.putAll(load(missing, now));
+        }
+        staleByWatermark.forEach((watermark, stale) -> {
+            refreshes.addAndGet(stale.size());
+            views.putAll(refresh(stale, watermark, now));
+        });
+
+        return views;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("views.cache.hits", hits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("views.cache.misses", misses, AtomicLong::get).register(registry);
+        FunctionCounter.builder("views.cache.refreshes", refreshes, AtomicLong::get).register(registry);
+        Gauge.builder("views.cache.size", this, ViewsCache::size).register(registry);
+    }
+
+    private Map<Long, Long> load(List<? extends EventPublication> events, LocalDateTime now) {
+        LocalDateTime watermark = watermark(now);
+        Map<Long, Long> loaded = statClient.getHits(toStarts(events, watermark), watermark, EVENT_URI_PREFIX, true);
+
+        synchronized (entries) {
+            for (EventPublication event : events) {
+                loaded.putIfAbsent(event.getId(), 0L);
+                entries.put(event.getId(), new Entry(loaded.get(event.getId()), watermark, now, now));
+            }
+        }
+        return loaded;
+    }
+
+    private Map<Long, Long> refresh(List<? extends EventPublication> events, LocalDateTime watermark, LocalDateTime now) {
+        LocalDateTime newWatermark = watermark(now);
+        Map<Long, Long> delta = new HashMap<>();
+        if (newWatermark.isAfter(watermark)) {
+            try {
+                delta = statClient.getHitsAfter(toStarts(events, watermark), watermark, newWatermark,
+                        EVENT_URI_PREFIX, true);
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh views for {} events, serving cached values: {}", events.size(),
+                        e.getMessage());
+                newWatermark = watermark;
+            }
+        }
+
+        Map<Long, Long> refreshed = new HashMap<>();
+        synchronized (entries) {
+            for (EventPublication event : events) {
+                Entry entry = entries.get(event.getId());
+                if (entry == null) {
+                    continue;
+                }
+                // another request may have advanced the entry meanwhile; its delta must not be added twice
+                if (entry.watermark.equals(watermark)) {
+                    entry = new Entry(entry.views + delta.getOrDefault(event.getId(), 0L), newWatermark,
+                            entry.loadedAt, now);
+                    entries.put(event.getId(), entry);
+                }
+                refreshed.put(event.getId(), entry.views);
+            }
+        }
+        return refreshed;
+    }
+
+    private LocalDateTime watermark(LocalDateTime now) {
+        return now.minus(watermarkLag).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Counts every event from its own publication, so that one old event does not widen the window of the others.
+     */
+    private Map<Long, LocalDateTime> toStarts(List<? extends EventPublication> events, LocalDateTime watermark) {
+        Map<Long, LocalDateTime> starts = new HashMap<>();
+        for (EventPublication event : events) {
+            LocalDateTime publishedOn = event.getPublishedOn();
+            starts.put(event.getId(), publishedOn.isBefore(watermark) ? publishedOn : watermark);
+        }
+        return starts;
+    }
+
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class Entry {
+
+        private final long views;
+        private final LocalDateTime watermark;
+        private final LocalDateTime loadedAt;
+        private final LocalDateTime refreshedAt;
+
+    }
+
+}
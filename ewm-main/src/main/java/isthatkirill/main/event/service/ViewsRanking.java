@@ -0,0 +1,129 @@
+package isthatkirill.main.event.service;
+
+import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.event.model.EventViews;
+import isthatkirill.main.event.repository.EventRepository;
+import isthatkirill.stats.StatClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically copies view counts of published events into {@code events.views},
+ * so that {@code sort=VIEWS} can be ordered and paginated by the database.
+ * Counts are read straight from the stat server: the sweep covers every published event and would only
+ * push the hot events out of the {@link ViewsCache}.
+ */
+@Slf4j
+@Component
+public class ViewsRanking {
+
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final EventRepository eventRepository;
+    private final StatClient statClient;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long refreshIntervalMs;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "views-ranking-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ViewsRanking(EventRepository eventRepository,
+                        StatClient statClient,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${views-ranking.batch-size:500}") int batchSize,
+                        @Value("${views-ranking.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.eventRepository = eventRepository;
+        this.statClient = statClient;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (refreshIntervalMs <= 0) {
+            log.info("Views ranking refresh is disabled");
+            return;
+        }
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Views ranking started --> batchSize={}, refreshIntervalMs={}", batchSize, refreshIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Walks published events by id in batches and writes back the counts that changed.
+     *
+     * @return number of events whose views were updated
+     */
+    public synchronized int refresh() {
+        Pageable pageable = PageRequest.of(0, batchSize, Sort.by("id"));
+        long lastId = 0L;
+        int updated = 0;
+        List<EventViews> events;
+        do {
+            long afterId = lastId;
+            events = eventRepository.findEventViewsByStateAndIdGreaterThan(EventState.PUBLISHED, afterId, pageable);
+            if (events.isEmpty()) {
+                break;
+            }
+            Map<Long, Long> views = getViews(events);
+            List<EventViews> batch = events;
+            updated += transactionTemplate.execute(status -> {
+                int changed = 0;
+                for (EventViews event : batch) {
+                    Long current = views.getOrDefault(event.getId(), 0L);
+                    if (!current.equals(event.getViews())) {
+                        changed += eventRepository.updateViews(event.getId(), current);
+                    }
+                }
+                return changed;
+            });
+            lastId = events.get(events.size() - 1).getId();
+        } while (events.size() == batchSize);
+
+        log.info("Views ranking refreshed, {} events updated", updated);
+        return updated;
+    }
+
+    private Map<Long, Long> getViews(List<EventViews> events) {
+        Map<Long, LocalDateTime> starts = events.stream()
+                .filter(event -> event.getPublishedOn() != null)
+                .collect(Collectors.toMap(EventViews::getId, EventViews::getPublishedOn));
+        if (starts.isEmpty()) {
+            return Map.of();
+        }
+        return statClient.getHits(starts, LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), EVENT_URI_PREFIX, true);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh views ranking: {}", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package isthatkirill.main.location.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A circle on the map and the grid cells that cover it.
+ * <p>
+ * Locations are bucketed into a {@value #CELL_DEGREES} degree grid whose cell id is {@code row * CELL_COLUMNS + column},
+ * so one row of the bounding box is one contiguous range of the indexed {@code locations.cell} column,
+ * or two when the box crosses the antimeridian.
+ * Distances use an equirectangular approximation, which stays well within a percent for city-sized radii.
+ */
+@Getter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class GeoRadius {
+
+    public static final double CELL_DEGREES = 0.1;
+    public static final int CELL_ROWS = 1800;
+    public static final int CELL_COLUMNS = 3600;
+
+    private static final double KM_PER_DEGREE = 111.195;
+    private static final int MAX_CELL_ROWS = 64;
+
+    double lat;
+    double lon;
+    double radiusKm;
+    double latDelta;
+    double lonDelta;
+    double lonScale;
+
+    public GeoRadius(double lat, double lon, double radiusKm) {
+        this.lat = lat;
+        this.lon = lon;
+        this.radiusKm = radiusKm;
+        this.latDelta = radiusKm / KM_PER_DEGREE;
+        this.lonScale = Math.cos(Math.toRadians(lat));
+        boolean coversPole = Math.abs(lat) + latDelta >= 90;
+        this.lonDelta = coversPole ? 180 : Math.min(180, latDelta / lonScale);
+    }
+
+    public static long cellOf(double lat, double lon) {
+        return row(lat) * CELL_COLUMNS + column(lon);
+    }
+
+    public double getMinLat() {
+        return Math.max(-90, lat - latDelta);
+    }
+
+    public double getMaxLat() {
+        return Math.min(90, lat + latDelta);
+    }
+
+    /**
+     * Whether the bounding box reaches past 180 degrees of longitude, so longitude differences have to be wrapped.
+     */
+    public boolean crossesAntimeridian() {
+        return lon - lonDelta < -180 || lon + lonDelta > 180;
+    }
+
+    /**
+     * Inclusive longitude ranges of the bounding box: one range, or two when it crosses the antimeridian.
+     */
+    public List<double[]> getLonRanges() {
+        double minLon = lon - lonDelta;
+        double maxLon = lon + lonDelta;
+        if (lonDelta >= 180) {
+            return List.of(new double[]{-180, 180});
+        }
+        if (minLon < -180) {
+            return List.of(new double[]{-180, maxLon}, new double[]{minLon + 360, 180});
+        }
+        if (maxLon > 180) {
+            return List.of(new double[]{-180, maxLon - 360}, new double[]{minLon, 180});
+        }
+        return List.of(new double[]{minLon, maxLon});
+    }
+
+    /**
+     * Squared radius in degrees of latitude, to compare against {@code dLat^2 + (dLon * lonScale)^2}.
+     */
+    public double getMaxDistanceSquared() {
+        return latDelta * latDelta;
+    }
+
+    /**
+     * Inclusive cell id ranges covering the bounding box, one per grid row and longitude range, widened by a cell
+     * on every side so that float rounding of stored coordinates never drops a location. Empty when the circle spans
+     * so many rows that a plain range scan on latitude is cheaper.
+     */
+    public List<long[]> getCellRanges() {
+        long firstRow = Math.max(0, row(getMinLat()) - 1);
+        long lastRow = Math.min(CELL_ROWS - 1, row(getMaxLat()) + 1);
+        if (lastRow - firstRow + 1 > MAX_CELL_ROWS) {
+            return Collections.emptyList();
+        }
+        List<double[]> lonRanges = getLonRanges();
+
+        List<long[]> ranges = new ArrayList<>();
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (double[] lonRange : lonRanges) {
+                long firstColumn = Math.max(0, column(lonRange[0]) - 1);
+                long lastColumn = Math.min(CELL_COLUMNS - 1, column(lonRange[1]) + 1);
+                ranges.add(new long[]{row * CELL_COLUMNS + firstColumn, row * CELL_COLUMNS + lastColumn});
+            }
+        }
+        return ranges;
+    }
+
+    private static long row(double lat) {
+        return Math.min(CELL_ROWS - 1, Math.max(0, (long) Math.floor((lat + 90) / CELL_DEGREES)));
+    }
+
+    private static long column(double lon) {
+        return Math.min(CELL_COLUMNS - 1, Math.max(0, (long) Math.floor((lon + 180) / CELL_DEGREES)));
+    }
+
+}
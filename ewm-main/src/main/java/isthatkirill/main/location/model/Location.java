@@ -1,6 +1,8 @@
 package isthatkirill.main.location.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
@@ -8,6 +10,8 @@ import javax.persistence.*;
 @Setter
 @Entity
 @Table(name = "locations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "locations")
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,4 +27,12 @@ public class Location {
     @Column(nullable = false)
     Float lon;
 
+    @Column(name = "cell")
+    Long cell;
+
+    @PrePersist
+    void assignCell() {
+        cell = GeoRadius.cellOf(lat, lon);
+    }
+
 }
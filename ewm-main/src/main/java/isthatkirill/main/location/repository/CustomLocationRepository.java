@@ -0,0 +1,7 @@
+package isthatkirill.main.location.repository;
+
+public interface CustomLocationRepository {
+
+    void insertIfAbsent(Float lat, Float lon);
+
+}
@@ -0,0 +1,45 @@
+package isthatkirill.main.location.repository;
+
+import isthatkirill.main.location.model.GeoRadius;
+import isthatkirill.main.location.model.Location;
+import isthatkirill.main.util.Databases;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class CustomLocationRepositoryImpl implements CustomLocationRepository {
+
+    private static final String ON_CONFLICT_INSERT = "INSERT INTO locations (lat, lon, cell) VALUES (?1, ?2, ?3) " +
+            "ON CONFLICT (lat, lon) DO NOTHING";
+    private static final String MERGE_INSERT = "MERGE INTO locations (lat, lon, cell) KEY (lat, lon) " +
+            "VALUES (?1, ?2, ?3)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean postgresql;
+
+    /**
+     * Atomic upsert backed by the unique (lat, lon) index: ON CONFLICT on PostgreSQL, MERGE ... KEY on H2.
+     * Synchronizing on Location keeps Hibernate from evicting every other second-level cache region.
+     */
+    @Override
+    public void insertIfAbsent(Float lat, Float lon) {
+        entityManager.createNativeQuery(isPostgreSql() ? ON_CONFLICT_INSERT : MERGE_INSERT)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Location.class)
+                .setParameter(1, lat)
+                .setParameter(2, lon)
+                .setParameter(3, GeoRadius.cellOf(lat, lon))
+                .executeUpdate();
+    }
+
+    private boolean isPostgreSql() {
+        if (postgresql == null) {
+            postgresql = Databases.isPostgreSql(entityManager);
+        }
+        return postgresql;
+    }
+
+}
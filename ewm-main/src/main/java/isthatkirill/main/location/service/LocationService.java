@@ -0,0 +1,10 @@
+package isthatkirill.main.location.service;
+
+import isthatkirill.main.location.dto.LocationDto;
+import isthatkirill.main.location.model.Location;
+
+public interface LocationService {
+
+    Location getOrCreate(LocationDto locationDto);
+
+}
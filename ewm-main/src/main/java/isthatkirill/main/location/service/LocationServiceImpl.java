@@ -0,0 +1,95 @@
+package isthatkirill.main.location.service;
+
+import isthatkirill.main.location.dto.LocationDto;
+import isthatkirill.main.location.model.Location;
+import isthatkirill.main.location.repository.LocationRepository;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves coordinates to a single location row. Known coordinates are answered from a bounded LRU map
+ * without touching the database; unknown ones go through an atomic upsert on the unique (lat, lon) index.
+ */
+@Slf4j
+@Service
+public class LocationServiceImpl implements LocationService {
+
+    private final LocationRepository locationRepository;
+    private final Map<Coordinates, Long> ids;
+
+    public LocationServiceImpl(LocationRepository locationRepository,
+                               @Value("${locations.cache.max-size:10000}") int maxSize) {
+        this.locationRepository = locationRepository;
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Coordinates, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    @Transactional
+    public Location getOrCreate(LocationDto locationDto) {
+        Coordinates coordinates = new Coordinates(locationDto.getLat(), locationDto.getLon());
+        Long id;
+        synchronized (ids) {
+            id = ids.get(coordinates);
+        }
+        if (id != null) {
+            return locationRepository.getReferenceById(id);
+        }
+
+        locationRepository.insertIfAbsent(coordinates.getLat(), coordinates.getLon());
+        Location location = locationRepository.findByLatAndLon(coordinates.getLat(), coordinates.getLon())
+                .orElseThrow(() -> new IllegalStateException("Location was not created: " + coordinates));
+        remember(coordinates, location.getId());
+        log.info("Location resolved --> id={}, {}", location.getId(), coordinates);
+        return location;
+    }
+
+    /**
+     * The id is cached only once the inserting transaction commits, so a rollback cannot leave a dangling id.
+     */
+    private void remember(Coordinates coordinates, Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(coordinates, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(coordinates, id);
+            }
+        });
+    }
+
+    private void put(Coordinates coordinates, Long id) {
+        synchronized (ids) {
+            ids.put(coordinates, id);
+        }
+    }
+
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Coordinates {
+
+        private final Float lat;
+        private final Float lon;
+
+    }
+
+}
@@ -4,10 +4,14 @@ import isthatkirill.main.request.dto.ParticipationRequestDto;
 import isthatkirill.main.request.service.RequestService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import java.util.List;
 
+@Validated
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users/{userId}/requests")
@@ -22,8 +26,10 @@ public class PrivateRequestController {
     }
 
     @GetMapping
-    public List<ParticipationRequestDto> getRequestsByUserId(@PathVariable Long userId) {
-        return requestService.getRequestsByUserId(userId);
+    public List<ParticipationRequestDto> getRequestsByUserId(@PathVariable Long userId,
+                                                             @RequestParam(defaultValue = "0", required = false) @PositiveOrZero Integer from,
+                                                             @RequestParam(required = false) @Positive Integer size) {
+        return requestService.getRequestsByUserId(userId, from, size);
     }
 
     @PatchMapping("/{requestId}/cancel")
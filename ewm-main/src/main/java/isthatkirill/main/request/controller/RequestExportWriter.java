@@ -0,0 +1,78 @@
+package isthatkirill.main.request.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import isthatkirill.main.request.dto.ParticipationRequestDto;
+import isthatkirill.main.request.model.RequestExportFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+import static isthatkirill.main.util.Formats.DATE_PATTERN;
+
+/**
+ * Writes participation requests to the response one line at a time and flushes every {@value #FLUSH_LINES} lines,
+ * one fetched batch, so the client receives the export while it is still being read. Headers are only set
+ * on the first write, so that a failure before it is still reported as a regular JSON error.
+ */
+@RequiredArgsConstructor
+public class RequestExportWriter implements Consumer<ParticipationRequestDto> {
+
+    static final int FLUSH_LINES = 1000;
+
+    private static final String CSV_HEADER = "id,event,requester,status,created\n";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+
+    private final HttpServletResponse response;
+    private final RequestExportFormat format;
+    private final ObjectMapper objectMapper;
+    private final String fileName;
+
+    private Writer writer;
+    private int lines;
+
+    @Override
+    public void accept(ParticipationRequestDto request) {
+        try {
+            start().write(toLine(request));
+            if (++lines % FLUSH_LINES == 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() throws IOException {
+        start().flush();
+    }
+
+    private Writer start() throws IOException {
+        if (writer == null) {
+            response.setContentType(format.getContentType());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"");
+            writer = response.getWriter();
+            if (format == RequestExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+            }
+        }
+        return writer;
+    }
+
+    private String toLine(ParticipationRequestDto request) throws IOException {
+        if (format == RequestExportFormat.NDJSON) {
+            return objectMapper.writeValueAsString(request) + "\n";
+        }
+        return request.getId() + "," + request.getEvent() + "," + request.getRequester() + "," +
+                request.getStatus() + "," + request.getCreated().format(FORMATTER) + "\n";
+    }
+
+}
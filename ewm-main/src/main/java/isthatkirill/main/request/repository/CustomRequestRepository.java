@@ -0,0 +1,17 @@
+package isthatkirill.main.request.repository;
+
+import isthatkirill.main.request.dto.ParticipationRequestDto;
+
+import java.util.List;
+
+public interface CustomRequestRepository {
+
+    /**
+     * Moves pending requests of the event out of moderation in one statement: those with id up to
+     * {@code confirmUpToId} become confirmed, the rest rejected.
+     *
+     * @return the updated requests; fewer than {@code ids} when some are missing, not pending or of another event
+     */
+    List<ParticipationRequestDto> moderatePending(Long eventId, List<Long> ids, Long confirmUpToId);
+
+}
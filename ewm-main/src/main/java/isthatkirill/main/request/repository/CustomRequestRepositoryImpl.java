@@ -0,0 +1,60 @@
+package isthatkirill.main.request.repository;
+
+import isthatkirill.main.request.dto.ParticipationRequestDto;
+import isthatkirill.main.request.model.Request;
+import isthatkirill.main.request.model.RequestState;
+import isthatkirill.main.util.Databases;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class CustomRequestRepositoryImpl implements CustomRequestRepository {
+
+    private static final String MODERATE_PENDING = "UPDATE requests " +
+            "SET status = CASE WHEN id <= ?1 THEN 'CONFIRMED' ELSE 'REJECTED' END " +
+            "WHERE id IN (?2) AND event_id = ?3 AND status = 'PENDING'";
+    private static final String UPDATED_COLUMNS = "id, created, event_id, requester_id, status";
+    private static final String RETURNING = MODERATE_PENDING + " RETURNING " + UPDATED_COLUMNS;
+    private static final String FINAL_TABLE = "SELECT " + UPDATED_COLUMNS + " FROM FINAL TABLE (" + MODERATE_PENDING + ")";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean postgresql;
+
+    /**
+     * UPDATE ... RETURNING on PostgreSQL, SELECT from the FINAL TABLE of the update on H2.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ParticipationRequestDto> moderatePending(Long eventId, List<Long> ids, Long confirmUpToId) {
+        List<Object[]> rows = entityManager.createNativeQuery(isPostgreSql() ? RETURNING : FINAL_TABLE)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Request.class)
+                .setParameter(1, confirmUpToId)
+                .setParameterList(2, ids)
+                .setParameter(3, eventId)
+                .getResultList();
+        return rows.stream()
+                .map(row -> ParticipationRequestDto.builder()
+                        .id(((Number) row[0]).longValue())
+                        .created(((Timestamp) row[1]).toLocalDateTime())
+                        .event(((Number) row[2]).longValue())
+                        .requester(((Number) row[3]).longValue())
+                        .status(RequestState.valueOf((String) row[4]))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private boolean isPostgreSql() {
+        if (postgresql == null) {
+            postgresql = Databases.isPostgreSql(entityManager);
+        }
+        return postgresql;
+    }
+
+}
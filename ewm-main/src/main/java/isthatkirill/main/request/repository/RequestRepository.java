@@ -1,26 +1,71 @@
 package isthatkirill.main.request.repository;
 
 import isthatkirill.main.event.model.EventConfirmedRequests;
+import isthatkirill.main.request.dto.ParticipationRequestDto;
 import isthatkirill.main.request.model.Request;
+import isthatkirill.main.request.model.RequestState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface RequestRepository extends JpaRepository<Request, Long> {
+public interface RequestRepository extends JpaRepository<Request, Long>, CustomRequestRepository {
 
+    /**
+     * Compares the foreign key columns, as a derived query would filter on left-joined users and events
+     * and keep the planner off the requests indexes. The lookups below are written the same way.
+     */
+    @Query("SELECT r FROM Request r " +
+            "WHERE r.requester.id = ?1 AND r.event.id = ?2")
     Optional<Request> findRequestByRequesterIdAndEventId(Long userId, Long eventId);
 
-    List<Request> findRequestsByRequesterId(Long userId);
+    @Query("SELECT r FROM Request r " +
+            "WHERE r.requester.id = ?1")
+    List<Request> findRequestsByRequesterId(Long userId, Pageable pageable);
 
+    @Query("SELECT r FROM Request r " +
+            "WHERE r.requester.id = ?1 AND r.id = ?2")
     Optional<Request> findRequestsByRequesterIdAndId(Long userId, Long requestId);
 
     List<Request> findRequestsByIdIn(List<Long> ids);
 
-    List<Request> findRequestsByEventInitiatorIdAndEventId(Long userId, Long eventId);
+    @Query("SELECT r FROM Request r " +
+            "WHERE r.event.initiator.id = ?1 AND r.event.id = ?2")
+    List<Request> findRequestsByEventInitiatorIdAndEventId(Long userId, Long eventId, Pageable pageable);
+
+    @Query("SELECT r.status FROM Request r " +
+            "WHERE r.id = ?1")
+    RequestState findStatusById(Long requestId);
+
+    /**
+     * Changes the status only while it is still {@code expected}, so that of concurrent changes exactly one applies.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Request r " +
+            "SET r.status = ?3 " +
+            "WHERE r.id = ?1 AND r.status = ?2")
+    int updateStatus(Long requestId, RequestState expected, RequestState status);
+
+    /**
+     * Reads the requests of an event through a forward-only cursor without managing entities,
+     * so it has to be consumed and closed within the surrounding transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new isthatkirill.main.request.dto.ParticipationRequestDto(r.created, r.event.id, r.id, r.requester.id, r.status) " +
+            "FROM Request r " +
+            "WHERE r.event.id = ?1 " +
+            "ORDER BY r.id")
+    Stream<ParticipationRequestDto> streamRequestsByEventId(Long eventId);
 
     @Query("SELECT count(r) FROM Request r " +
             "WHERE r.event.id = ?1 AND " +
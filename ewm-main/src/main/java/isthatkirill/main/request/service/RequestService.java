@@ -5,12 +5,13 @@ import isthatkirill.main.request.dto.EventRequestStatusUpdateResultDto;
 import isthatkirill.main.request.dto.ParticipationRequestDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface RequestService {
 
     ParticipationRequestDto create(Long userId, Long eventId);
 
-    List<ParticipationRequestDto> getRequestsByUserId(Long userId);
+    List<ParticipationRequestDto> getRequestsByUserId(Long userId, Integer from, Integer size);
 
     ParticipationRequestDto cancel(Long userId, Long requestId);
 
@@ -18,6 +19,8 @@ public interface RequestService {
                                                                  Long userId,
                                                                  Long eventId);
 
-    List<ParticipationRequestDto> getRequestsByInitiator(Long userId, Long eventId);
+    List<ParticipationRequestDto> getRequestsByInitiator(Long userId, Long eventId, Integer from, Integer size);
+
+    void forEachRequestByInitiator(Long userId, Long eventId, Consumer<ParticipationRequestDto> action);
 
 }
@@ -4,25 +4,35 @@ import isthatkirill.main.error.exception.EntityNotFoundException;
 import isthatkirill.main.error.exception.ForbiddenException;
 import isthatkirill.main.event.model.Event;
 import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.event.model.EventsChanged;
 import isthatkirill.main.event.repository.EventRepository;
 import isthatkirill.main.request.dto.EventRequestStatusUpdateRequestDto;
 import isthatkirill.main.request.dto.EventRequestStatusUpdateResultDto;
 import isthatkirill.main.request.dto.ParticipationRequestDto;
 import isthatkirill.main.request.mapper.RequestMapper;
 import isthatkirill.main.request.model.Request;
+import isthatkirill.main.request.model.RequestProcessedState;
 import isthatkirill.main.request.model.RequestState;
 import isthatkirill.main.request.repository.RequestRepository;
 import isthatkirill.main.user.model.User;
 import isthatkirill.main.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -33,6 +43,7 @@ public class RequestServiceImpl implements RequestService {
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
     private final RequestMapper requestMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -53,6 +64,7 @@ public class RequestServiceImpl implements RequestService {
                 .build();
 
         if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
+            admit(1, event);
             request.setStatus(RequestState.CONFIRMED);
         }
 
@@ -66,10 +78,11 @@ public class RequestServiceImpl implements RequestService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<ParticipationRequestDto> getRequestsByUserId(Long userId) {
+    public List<ParticipationRequestDto> getRequestsByUserId(Long userId, Integer from, Integer size) {
         checkIfUserExists(userId);
-        log.info("Get requests for user with id={}", userId);
-        return requestMapper.toParticipationRequestDto(requestRepository.findRequestsByRequesterId(userId));
+        log.info("Get requests for user with id={}, from={}, size={}", userId, from, size);
+        return requestMapper.toParticipationRequestDto(requestRepository.findRequestsByRequesterId(userId,
+                pageOf(from, size)));
     }
 
     @Override
@@ -77,9 +90,21 @@ public class RequestServiceImpl implements RequestService {
     public ParticipationRequestDto cancel(Long userId, Long requestId) {
         checkIfUserExists(userId);
         Request request = findByUserIdAndRequestId(userId, requestId);
+        RequestState previous = request.getStatus();
+        // a concurrent cancel or confirmation changes the status first: retry from the status it left
+        while (requestRepository.updateStatus(requestId, previous, RequestState.CANCELED) == 0) {
+            previous = requestRepository.findStatusById(requestId);
+            if (previous == null) {
+                throw new EntityNotFoundException(Request.class, requestId);
+            }
+        }
+        if (previous == RequestState.CONFIRMED) {
+            eventRepository.addConfirmedRequests(request.getEvent().getId(), -1L);
+            eventPublisher.publishEvent(new EventsChanged(List.of(request.getEvent().getId())));
+        }
         request.setStatus(RequestState.CANCELED);
         log.info("User with id={} cancelled request with id={}", userId, requestId);
-        return requestMapper.toParticipationRequestDto(requestRepository.save(request));
+        return requestMapper.toParticipationRequestDto(request);
     }
 
     @Override
@@ -99,39 +124,56 @@ public class RequestServiceImpl implements RequestService {
             );
         }
 
-        List<Request> requests = requestRepository.findRequestsByIdIn(ids);
-        if (ids.size() != requests.size()) {
-            throw new EntityNotFoundException("Not all requests were found");
-        }
+        List<Long> sortedIds = ids.stream().sorted().collect(Collectors.toList());
+        long capacity = event.getParticipantLimit() - event.getConfirmedRequests();
+        int toConfirm = updateRequest.getStatus() == RequestProcessedState.CONFIRMED
+                ? (int) Math.max(0, Math.min(capacity, sortedIds.size()))
+                : 0;
+        Long confirmUpToId = toConfirm == 0 ? 0L : sortedIds.get(toConfirm - 1);
 
-        checkIfPending(requests);
-
-        List<Request> confirmed = new ArrayList<>();
-        List<Request> rejected = new ArrayList<>();
-
-        switch (updateRequest.getStatus()) {
-            case REJECTED:
-                requests.forEach(r -> r.setStatus(RequestState.REJECTED));
-                rejected = requestRepository.saveAll(requests);
-                break;
-            case CONFIRMED:
-                checkParticipantLimit(ids.size(), event);
-                requests.forEach(r -> r.setStatus(RequestState.CONFIRMED));
-                confirmed = requestRepository.saveAll(requests);
-                break;
+        List<ParticipationRequestDto> moderated = requestRepository.moderatePending(eventId, sortedIds, confirmUpToId);
+        if (moderated.size() != sortedIds.size()) {
+            checkIfAllFoundAndPending(ids, eventId);
+        }
+        if (updateRequest.getStatus() == RequestProcessedState.CONFIRMED) {
+            // overflow beyond the remaining places is rejected, but nothing is processed once the event is full
+            if (toConfirm == 0) {
+                throw new ForbiddenException("Exceeded the limit of participants");
+            }
+            admit(toConfirm, event);
         }
 
-        return new EventRequestStatusUpdateResultDto(
-                requestMapper.toParticipationRequestDto(confirmed),
-                requestMapper.toParticipationRequestDto(rejected)
-        );
+        Map<Boolean, List<ParticipationRequestDto>> byConfirmed = moderated.stream()
+                .sorted(Comparator.comparing(ParticipationRequestDto::getId))
+                .collect(Collectors.partitioningBy(r -> r.getStatus() == RequestState.CONFIRMED));
+        log.info("Requests for event id={} processed --> confirmed={}, rejected={}", eventId,
+                byConfirmed.get(true).size(), byConfirmed.get(false).size());
+        return new EventRequestStatusUpdateResultDto(byConfirmed.get(true), byConfirmed.get(false));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ParticipationRequestDto> getRequestsByInitiator(Long userId, Long eventId) {
-        log.info("Get requests by user id={} for event id={}", userId, eventId);
-        return requestMapper.toParticipationRequestDto(requestRepository.findRequestsByEventInitiatorIdAndEventId(userId, eventId));
+    public List<ParticipationRequestDto> getRequestsByInitiator(Long userId, Long eventId, Integer from, Integer size) {
+        log.info("Get requests by user id={} for event id={}, from={}, size={}", userId, eventId, from, size);
+        return requestMapper.toParticipationRequestDto(requestRepository.findRequestsByEventInitiatorIdAndEventId(userId, eventId,
+                pageOf(from, size)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachRequestByInitiator(Long userId, Long eventId, Consumer<ParticipationRequestDto> action) {
+        log.info("Export requests by user id={} for event id={}", userId, eventId);
+        checkIfUserExists(userId);
+        if (eventRepository.findEventByIdAndInitiatorId(eventId, userId).isEmpty()) {
+            throw new EntityNotFoundException(Event.class, eventId);
+        }
+        try (Stream<ParticipationRequestDto> requests = requestRepository.streamRequestsByEventId(eventId)) {
+            requests.forEach(action);
+        }
+    }
+
+    private Pageable pageOf(Integer from, Integer size) {
+        return size == null ? Pageable.unpaged() : PageRequest.of(from / size, size, Sort.by("id"));
     }
 
     private Request findByUserIdAndRequestId(Long userId, Long requestId) {
@@ -140,17 +182,30 @@ public class RequestServiceImpl implements RequestService {
     }
 
     private void checkParticipantLimit(Integer requestToAdd, Event event) {
-        if (requestRepository.getConfirmedRequests(event.getId()) + requestToAdd > event.getParticipantLimit() && event.getParticipantLimit() != 0) {
+        if (event.getConfirmedRequests() + requestToAdd > event.getParticipantLimit() && event.getParticipantLimit() != 0) {
+            throw new ForbiddenException("Exceeded the limit of participants");
+        }
+    }
+
+    /**
+     * Reserves places with a conditional update, so concurrent requests can never exceed the limit.
+     */
+    private void admit(Integer requestToAdd, Event event) {
+        if (eventRepository.admitConfirmedRequests(event.getId(), requestToAdd.longValue()) == 0) {
             throw new ForbiddenException("Exceeded the limit of participants");
         }
+        eventPublisher.publishEvent(new EventsChanged(List.of(event.getId())));
     }
 
-    private void checkIfPending(List<Request> requests) {
-        if (!requests.stream()
-                .map(Request::getStatus)
-                .allMatch(s -> s.equals(RequestState.PENDING))) {
-            throw new ForbiddenException("Confirmed or cancelled requests cannot be modified");
+    /**
+     * Explains why a bulk moderation did not match every id; the caller's transaction is rolled back by the throw.
+     */
+    private void checkIfAllFoundAndPending(List<Long> ids, Long eventId) {
+        List<Request> requests = requestRepository.findRequestsByIdIn(ids);
+        if (ids.size() != requests.size() || !requests.stream().allMatch(r -> r.getEvent().getId().equals(eventId))) {
+            throw new EntityNotFoundException("Not all requests were found");
         }
+        throw new ForbiddenException("Confirmed or cancelled requests cannot be modified");
     }
 
     private boolean shouldSkipProcessing(List<Long> ids, Event event) {
@@ -163,7 +218,7 @@ public class RequestServiceImpl implements RequestService {
     }
 
     private Event checkIfEventExistsAndGet(Long eventId) {
-        return eventRepository.findByIdAndLock(eventId)
+        return eventRepository.findById(eventId)
                 .orElseThrow(() -> new EntityNotFoundException(Event.class, eventId));
     }
 
@@ -191,7 +246,7 @@ public class RequestServiceImpl implements RequestService {
     }
 
     private void checkIfUserExists(Long userId) {
-        if (!userRepository.existsById(userId)) {
+        if (userRepository.findById(userId).isEmpty()) {
             throw new EntityNotFoundException(User.class, userId);
         }
     }
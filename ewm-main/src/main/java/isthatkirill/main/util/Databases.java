@@ -0,0 +1,22 @@
+package isthatkirill.main.util;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+
+public class Databases {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private Databases() {
+    }
+
+    /**
+     * Reads the product name from the JDBC metadata of the connection behind the persistence context.
+     */
+    public static boolean isPostgreSql(EntityManager entityManager) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName()));
+    }
+
+}
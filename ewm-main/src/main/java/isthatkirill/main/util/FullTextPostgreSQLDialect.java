@@ -0,0 +1,26 @@
+package isthatkirill.main.util;
+
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Adds full-text search functions over event annotation and description.
+ * The document expression must stay identical to idx_events_search in db/migration/postgresql/V3_1__search_indexes.sql,
+ * otherwise the GIN index is not used.
+ */
+public class FullTextPostgreSQLDialect extends PostgreSQL10Dialect {
+
+    private static final String DOCUMENT = "(setweight(to_tsvector('simple', ?1), 'A') || " +
+            "setweight(to_tsvector('simple', ?2), 'B'))";
+    private static final String QUERY = "to_tsquery('simple', ?3)";
+
+    public FullTextPostgreSQLDialect() {
+        super();
+        registerFunction("fts_match", new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                "(" + DOCUMENT + " @@ " + QUERY + ")"));
+        registerFunction("fts_rank", new SQLFunctionTemplate(StandardBasicTypes.DOUBLE,
+                "ts_rank(" + DOCUMENT + ", " + QUERY + ")"));
+    }
+
+}
@@ -0,0 +1,15 @@
+-- counters kept on events for participant limits and sort=VIEWS
+alter table events add column IF NOT EXISTS confirmed_requests BIGINT NOT NULL DEFAULT 0;
+alter table events add column IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
+
+-- existing events start from their actual count, admission checks rely on it
+update events SET confirmed_requests = (
+    select count(*) from requests r WHERE r.event_id = events.id AND r.status = 'CONFIRMED'
+) WHERE confirmed_requests <> (
+    select count(*) from requests r WHERE r.event_id = events.id AND r.status = 'CONFIRMED'
+);
+
+-- keyset pagination of listings and of the views ranking
+create index IF NOT EXISTS idx_events_event_date_id ON events (event_date, id);
+create index IF NOT EXISTS idx_events_initiator_id_id ON events (initiator_id, id);
+create index IF NOT EXISTS idx_events_views_id ON events (views, id);
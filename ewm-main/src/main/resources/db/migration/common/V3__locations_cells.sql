@@ -0,0 +1,14 @@
+-- one row per coordinate pair: events are repointed to the oldest duplicate before the others are removed
+update events SET location_id = (
+    select min(d.id) from locations l JOIN locations d ON d.lat = l.lat AND d.lon = l.lon WHERE l.id = events.location_id
+) WHERE location_id IN (
+    select l.id from locations l WHERE EXISTS (select 1 from locations d WHERE d.lat = l.lat AND d.lon = l.lon AND d.id < l.id)
+);
+delete from locations l WHERE EXISTS (select 1 from locations d WHERE d.lat = l.lat AND d.lon = l.lon AND d.id < l.id);
+create unique index IF NOT EXISTS uq_locations_lat_lon ON locations (lat, lon);
+
+-- grid cell of GeoRadius for radius search
+alter table locations add column IF NOT EXISTS cell BIGINT;
+update locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + LEAST(3599, FLOOR((lon + 180) / 0.1))
+WHERE cell IS NULL;
+create index IF NOT EXISTS idx_locations_cell ON locations (cell);
@@ -0,0 +1,5 @@
+-- confirmed counts per event are answered from the index alone
+create index IF NOT EXISTS idx_requests_event_id_status_id ON requests (event_id, status, id);
+-- requests of an event or of a requester, paged and streamed in id order
+create index IF NOT EXISTS idx_requests_event_id_id ON requests (event_id, id);
+create index IF NOT EXISTS idx_requests_requester_id_id ON requests (requester_id, id);
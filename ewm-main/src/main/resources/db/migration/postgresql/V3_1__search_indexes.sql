@@ -0,0 +1,6 @@
+create index IF NOT EXISTS idx_events_search ON events USING GIN (
+    (setweight(to_tsvector('simple', annotation), 'A') || setweight(to_tsvector('simple', description), 'B'))
+);
+
+create index IF NOT EXISTS idx_events_available ON events (event_date, id)
+    WHERE state = 'PUBLISHED' AND (participant_limit = 0 OR participant_limit > confirmed_requests);
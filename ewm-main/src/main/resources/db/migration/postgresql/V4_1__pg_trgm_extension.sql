@@ -0,0 +1,12 @@
+-- pg_trgm is a prerequisite of the trigram search indexes of V4_2. it is trusted since PostgreSQL 13, so a role with
+-- CREATE on the database installs it here; otherwise a DBA runs "create extension pg_trgm" before the upgrade.
+do $$
+begin
+    if not exists (select 1 from pg_extension where extname = 'pg_trgm') then
+        create extension pg_trgm;
+    end if;
+exception
+    when insufficient_privilege then
+        raise exception 'pg_trgm is not installed and % may not install it: run "create extension pg_trgm" as a DBA',
+            current_user;
+end $$;
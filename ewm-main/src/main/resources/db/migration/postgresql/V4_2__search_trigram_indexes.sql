@@ -0,0 +1,5 @@
+-- built without locking writes to events; flyway runs this script outside a transaction.
+-- an interrupted build leaves an INVALID index behind: drop it before re-running the migration
+create index CONCURRENTLY IF NOT EXISTS idx_events_annotation_trgm ON events USING GIN (lower(annotation) gin_trgm_ops);
+
+create index CONCURRENTLY IF NOT EXISTS idx_events_description_trgm ON events USING GIN (lower(description) gin_trgm_ops);
@@ -0,0 +1,7 @@
+-- built without locking writes to requests; flyway runs this script outside a transaction.
+-- an interrupted build leaves an INVALID index behind: drop it before re-running the migration
+-- confirmed counts per event are answered from the index alone
+create index CONCURRENTLY IF NOT EXISTS idx_requests_event_id_status_id ON requests (event_id, status, id);
+-- requests of an event or of a requester, paged and streamed in id order
+create index CONCURRENTLY IF NOT EXISTS idx_requests_event_id_id ON requests (event_id, id);
+create index CONCURRENTLY IF NOT EXISTS idx_requests_requester_id_id ON requests (requester_id, id);
@@ -0,0 +1,190 @@
+package isthatkirill.main;
+
+import isthatkirill.main.event.model.EventSort;
+import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.event.repository.EventRepository;
+import isthatkirill.main.location.model.GeoRadius;
+import isthatkirill.main.request.dto.ParticipationRequestDto;
+import isthatkirill.main.request.repository.RecordingStatementInspector;
+import isthatkirill.main.request.repository.RequestRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails when PostgreSQL has no index for a request, event listing, text search or radius search query.
+ * The schema comes from the db/migration/postgresql scripts, and every statement Hibernate sends is explained
+ * with sequential scans disabled, so a {@code Seq Scan} left in a plan means no index could serve it.
+ *
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "isthatkirill.main.request.repository.RecordingStatementInspector")
+@DirtiesContext
+@EnabledIf("dockerAvailable")
+class QueryPlanPostgreSqlTest {
+
+    private static final Pattern FULL_SCAN = Pattern.compile("Seq Scan on (requests|events|users|locations)\\b");
+
+    private static PostgreSQLContainer<?> postgres;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        postgres = new PostgreSQLContainer<>("postgres:14-alpine");
+        postgres.start();
+        registry.add("spring.datasource.driverClassName", postgres::getDriverClassName);
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    void queriesUseIndexesOnPostgreSqlTest() {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO categories (name) SELECT 'category ' || x FROM generate_series(1, 4) x",
+                "INSERT INTO users (name, email) SELECT 'user ' || x, 'user' || x || '@yandex.ru' " +
+                        "FROM generate_series(1, 1000) x",
+                "INSERT INTO locations (lat, lon) SELECT 55 + (x % 50) * 0.03, 37 + (x / 50) * 0.03 " +
+                        "FROM generate_series(0, 1999) x",
+                "UPDATE locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + " +
+                        "LEAST(3599, FLOOR((lon + 180) / 0.1))",
+                "INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, " +
+                        "request_moderation, published_on, title, state, location_id, initiator_id, category_id) " +
+                        "SELECT 'plan ' || x, NOW(), 'plan description ' || x, NOW() + INTERVAL '10 days', false, " +
+                        "x % 3, true, NOW(), 'plan title ' || x, 'PUBLISHED', 1 + x % 2000, 1 + x % 1000, " +
+                        "1 + x % 4 FROM generate_series(1, 1000) x",
+                "INSERT INTO requests (requester_id, event_id, status, created) " +
+                        "SELECT 1 + x % 1000, 1 + (x / 1000 + (x % 1000) * 7) % 1000, " +
+                        "CASE WHEN x % 3 = 0 THEN 'CONFIRMED' ELSE 'PENDING' END, NOW() " +
+                        "FROM generate_series(0, 49999) x",
+                "ANALYZE");
+        RecordingStatementInspector.drain();
+
+        requestRepository.getConfirmedRequests(100L);
+        requestRepository.getConfirmedRequests(List.of(100L, 200L, 300L));
+        requestRepository.findRequestByRequesterIdAndEventId(10L, 100L);
+        requestRepository.findRequestsByRequesterId(10L, PageRequest.of(0, 10, Sort.by("id")));
+        requestRepository.findRequestsByEventInitiatorIdAndEventId(100L, 100L, PageRequest.of(0, 10, Sort.by("id")));
+        requestRepository.findRequestsByIdIn(List.of(1L, 2L, 3L));
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ParticipationRequestDto> requests = requestRepository.streamRequestsByEventId(100L)) {
+                assertThat(requests).isNotEmpty();
+            }
+        });
+
+        eventRepository.findEventsByInitiatorId(10L, PageRequest.of(0, 10, Sort.by("id")));
+        eventRepository.findEventsByAdmin(List.of(10L), List.of(EventState.PUBLISHED), null, null, null, null, 0, 10);
+        eventRepository.findEventShortViewsByPublic(null, List.of(1L), false, null, null, true, null, null, 0, 10,
+                EventSort.EVENT_DATE);
+        eventRepository.findEventShortViewsByPublic(null, null, null, null, null, false, null, null, 0, 10,
+                EventSort.VIEWS);
+        eventRepository.findEventShortViewsByPublic("plan", null, null, null, null, false, null, null, 0, 10,
+                EventSort.EVENT_DATE);
+        eventRepository.findEventShortViewsByPublic("plan title", null, null, null, null, false, null, null, 0, 10,
+                EventSort.RELEVANCE);
+        eventRepository.findEventShortViewsByPublic(null, null, null, null, null, false,
+                new GeoRadius(55.75, 37.62, 10), null, 0, 10, EventSort.DISTANCE);
+
+        List<String> statements = RecordingStatementInspector.drain();
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            assertThat(explain(sql)).as(sql).doesNotContainPattern(FULL_SCAN);
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement settings = connection.createStatement()) {
+                settings.execute("SET enable_seqscan = off");
+                try (PreparedStatement described = connection.prepareStatement(sql);
+                     PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                    bindParameters(described.getParameterMetaData(), statement);
+                    StringJoiner plan = new StringJoiner("\n");
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            plan.add(rows.getString(1));
+                        }
+                    }
+                    return plan.toString();
+                } finally {
+                    settings.execute("RESET enable_seqscan");
+                }
+            }
+        });
+    }
+
+    /**
+     * Binds a value of the type PostgreSQL inferred for every parameter, as the statements compare columns of
+     * several types and a mistyped parameter fails to plan.
+     */
+    private void bindParameters(ParameterMetaData parameters, PreparedStatement statement) throws SQLException {
+        for (int i = 1; i <= parameters.getParameterCount(); i++) {
+            switch (parameters.getParameterType(i)) {
+                case Types.BIGINT:
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.NUMERIC:
+                    statement.setLong(i, 1);
+                    break;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    statement.setDouble(i, 1);
+                    break;
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    statement.setBoolean(i, true);
+                    break;
+                case Types.TIMESTAMP:
+                    statement.setTimestamp(i, Timestamp.valueOf(LocalDateTime.now()));
+                    break;
+                default:
+                    statement.setString(i, "1");
+            }
+        }
+    }
+
+    static boolean dockerAvailable() {
+        return DockerClientFactory.instance().isDockerAvailable();
+    }
+
+}
@@ -0,0 +1,65 @@
+package isthatkirill.main;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upgrades a database created by the pre-migration schema.sql, the way an existing deployment is baselined.
+ *
+ * @author Kirill Emelyanov
+ */
+
+class SchemaMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createBaselineDatabase() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "test", "test");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("RUNSCRIPT FROM 'classpath:db/migration/common/V1__init.sql'");
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (name, email) VALUES ('initiator', 'initiator@yandex.ru')",
+                "INSERT INTO users (name, email) VALUES ('requester', 'requester@yandex.ru')",
+                "INSERT INTO categories (name) VALUES ('concerts')",
+                "INSERT INTO locations (lat, lon) VALUES (55.75, 37.62)",
+                "INSERT INTO locations (lat, lon) VALUES (55.75, 37.62)",
+                "INSERT INTO locations (lat, lon) VALUES (59.93, 30.31)",
+                "INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, " +
+                        "request_moderation, published_on, title, state, location_id, initiator_id, category_id) " +
+                        "VALUES ('annotation', NOW(), 'description', NOW() + INTERVAL '10' DAY, false, 1, true, NOW(), " +
+                        "'title', 'PUBLISHED', 2, 1, 1)",
+                "INSERT INTO requests (requester_id, event_id, status, created) VALUES (2, 1, 'CONFIRMED', NOW())");
+    }
+
+    @Test
+    void baselineDatabaseIsUpgradedTest() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        flyway.migrate();
+
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("4");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM locations", Long.class)).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForObject("SELECT location_id FROM events WHERE id = 1", Long.class)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM locations WHERE cell IS NULL", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT views FROM events WHERE id = 1", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = 1", Long.class))
+                .isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE INDEX_NAME IN ('UQ_LOCATIONS_LAT_LON', 'IDX_LOCATIONS_CELL', 'IDX_REQUESTS_EVENT_ID_STATUS_ID')",
+                Long.class)).isEqualTo(3L);
+    }
+
+}
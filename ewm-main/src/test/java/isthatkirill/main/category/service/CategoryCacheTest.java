@@ -0,0 +1,100 @@
+package isthatkirill.main.category.service;
+
+import isthatkirill.main.category.dto.CategoryDto;
+import isthatkirill.main.category.dto.NewCategoryDto;
+import isthatkirill.main.error.exception.EntityNotFoundException;
+import isthatkirill.main.user.model.User;
+import isthatkirill.main.user.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"
+})
+@Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"})
+class CategoryCacheTest {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void resetCache() {
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getByIdServedFromCacheTest() {
+        categoryService.getById(1L);
+        categoryService.getById(1L);
+
+        assertThat(statistics.getSecondLevelCachePutCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllServedFromQueryCacheTest() {
+        categoryService.getAll(0, 10);
+        statistics.clear();
+
+        assertThat(categoryService.getAll(0, 10)).hasSize(4);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void updateRefreshesCacheTest() {
+        categoryService.getById(1L);
+        categoryService.update(NewCategoryDto.builder().name("renamed").build(), 1L);
+
+        assertThat(categoryService.getById(1L)).extracting(CategoryDto::getName).isEqualTo("renamed");
+        assertThat(categoryService.getAll(0, 10)).extracting(CategoryDto::getName).contains("renamed");
+    }
+
+    @Test
+    void deleteEvictsCacheTest() {
+        Long catId = categoryService.create(NewCategoryDto.builder().name("empty").build()).getId();
+        categoryService.getById(catId);
+
+        categoryService.delete(catId);
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        assertThrows(EntityNotFoundException.class, () -> categoryService.getById(catId));
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(hits);
+    }
+
+    @Test
+    void userServedFromCacheTest() {
+        userRepository.findById(1L);
+        userRepository.findById(1L);
+
+        assertThat(entityManagerFactory.getCache().contains(User.class, 1L)).isTrue();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+}
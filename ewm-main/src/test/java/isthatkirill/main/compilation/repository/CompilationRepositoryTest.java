@@ -1,5 +1,6 @@
 package isthatkirill.main.compilation.repository;
 
+import isthatkirill.main.compilation.dto.CompilationEventDto;
 import isthatkirill.main.compilation.model.Compilation;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -62,4 +63,23 @@ class CompilationRepositoryTest {
                 .containsExactlyInAnyOrder("frontend compilation", "backend compilation");
     }
 
-}
\ No newline at end of file
+    @Test
+    void findAllByTest() {
+        List<Compilation> compilations = compilationRepository.findAllBy(PageRequest.of(1, 3));
+
+        assertThat(compilations).hasSize(3)
+                .extracting(Compilation::getId)
+                .containsExactlyInAnyOrder(4L, 5L, 6L);
+    }
+
+    @Test
+    void findCompilationEventsTest() {
+        List<CompilationEventDto> links = compilationRepository.findCompilationEvents(List.of(1L, 4L, 7L));
+
+        assertThat(links).extracting(CompilationEventDto::getCompilationId)
+                .containsExactly(1L, 1L, 1L, 4L, 4L, 4L);
+        assertThat(links).extracting(CompilationEventDto::getEventId)
+                .containsExactly(1L, 2L, 7L, 6L, 7L, 8L);
+    }
+
+}
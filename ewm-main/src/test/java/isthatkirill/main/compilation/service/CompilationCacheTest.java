@@ -0,0 +1,120 @@
+package isthatkirill.main.compilation.service;
+
+import isthatkirill.main.compilation.dto.CompilationRequestDto;
+import isthatkirill.main.compilation.dto.CompilationResponseDto;
+import isthatkirill.main.event.dto.EventShortDto;
+import isthatkirill.main.event.dto.UpdateEventDto;
+import isthatkirill.main.event.model.EventsChanged;
+import isthatkirill.main.event.service.EventService;
+import isthatkirill.main.event.service.StatServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = "compilations.cache.max-size=100")
+@Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql", "/testdata/test-compilations.sql"})
+class CompilationCacheTest {
+
+    @Autowired
+    private CompilationService compilationService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private CompilationCache compilationCache;
+
+    @MockBean
+    private StatServiceImpl statService;
+
+    @Test
+    void getByIdServedFromCacheTest() {
+        compilationCache.evict(3L);
+
+        CompilationResponseDto first = compilationService.getById(3L);
+        CompilationResponseDto second = compilationService.getById(3L);
+
+        assertThat(second).isSameAs(first);
+        verify(statService, times(1)).getViews(anyList());
+        verify(statService, times(1)).getConfirmedRequests(anyList());
+    }
+
+    @Test
+    void getAllRendersOnlyMissingCompilationsTest() {
+        List.of(1L, 2L, 3L).forEach(compilationCache::evict);
+        compilationService.getById(1L);
+        clearInvocations(statService);
+
+        List<CompilationResponseDto> compilations = compilationService.getAll(true, 0, 10);
+        List<CompilationResponseDto> cached = compilationService.getAll(true, 0, 10);
+
+        assertThat(compilations).extracting(CompilationResponseDto::getId).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(cached).extracting(CompilationResponseDto::getId).containsExactlyInAnyOrder(1L, 2L, 3L);
+        verify(statService, times(1)).getViews(argThat(events -> events.size() == 8));
+        verify(statService, times(1)).getConfirmedRequests(anyList());
+    }
+
+    @Test
+    void eventUpdateEvictsCompilationTest() {
+        compilationCache.evict(3L);
+        compilationService.getById(3L);
+
+        eventService.updateByAdmin(UpdateEventDto.builder().title("renamed event").build(), 10L);
+
+        assertThat(compilationService.getById(3L).getEvents())
+                .filteredOn(e -> e.getId().equals(10L))
+                .extracting(EventShortDto::getTitle)
+                .containsExactly("renamed event");
+    }
+
+    @Test
+    void compilationUpdateEvictsCompilationTest() {
+        compilationCache.evict(3L);
+        compilationService.getById(3L);
+
+        compilationService.update(CompilationRequestDto.builder().title("renamed compilation").build(), 3L);
+
+        assertThat(compilationService.getById(3L).getTitle()).isEqualTo("renamed compilation");
+    }
+
+    @Test
+    void expiredAndStaleEntriesNotServedTest() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneId.of("UTC"));
+        CompilationCache cache = new CompilationCache(10, Duration.ofSeconds(10), clock);
+        CompilationResponseDto compilation = CompilationResponseDto.builder()
+                .id(1L)
+                .events(List.of(EventShortDto.builder().id(5L).build()))
+                .build();
+
+        long generation = cache.generation();
+        cache.onEventsChanged(new EventsChanged(List.of(99L)));
+        cache.put(compilation, generation);
+        assertThat(cache.getAll(List.of(1L))).isEmpty();
+
+        cache.put(compilation, cache.generation());
+        assertThat(cache.getAll(List.of(1L))).containsKey(1L);
+
+        cache.onEventsChanged(new EventsChanged(List.of(5L)));
+        assertThat(cache.getAll(List.of(1L))).isEmpty();
+
+        CompilationCache expiring = new CompilationCache(10, Duration.ofSeconds(-1), clock);
+        expiring.put(compilation, expiring.generation());
+        assertThat(expiring.getAll(List.of(1L))).isEmpty();
+    }
+
+}
@@ -0,0 +1,67 @@
+package isthatkirill.main.compilation.service;
+
+import isthatkirill.main.compilation.dto.CompilationResponseDto;
+import isthatkirill.main.event.service.StatServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql", "/testdata/test-compilations.sql"})
+class CompilationQueryCountTest {
+
+    @Autowired
+    private CompilationService compilationService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private StatServiceImpl statService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllStatementCountTest() {
+        List<CompilationResponseDto> smallPage = compilationService.getAll(null, 0, 2);
+        assertThat(smallPage).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        statistics.clear();
+        List<CompilationResponseDto> fullPage = compilationService.getAll(null, 0, 10);
+        assertThat(fullPage).hasSize(7);
+        assertThat(fullPage).filteredOn(c -> c.getId().equals(6L))
+                .flatExtracting(CompilationResponseDto::getEvents)
+                .hasSize(8);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void getByIdStatementCountTest() {
+        CompilationResponseDto compilation = compilationService.getById(3L);
+
+        assertThat(compilation.getEvents()).hasSize(4);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+}
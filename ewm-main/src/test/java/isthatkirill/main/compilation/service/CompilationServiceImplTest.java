@@ -236,4 +236,14 @@ class CompilationServiceImplTest {
                 .containsExactlyInAnyOrder(1L, 3L);
     }
 
-}
\ No newline at end of file
+    @Test
+    @Order(11)
+    void getAllLooksUpStatsOncePerPageTest() {
+        List<CompilationResponseDto> compilations = compilationService.getAll(null, 0, 10);
+
+        assertThat(compilations).hasSize(8);
+        verify(statService, times(1)).getViews(anyList());
+        verify(statService, times(1)).getConfirmedRequests(anyList());
+    }
+
+}
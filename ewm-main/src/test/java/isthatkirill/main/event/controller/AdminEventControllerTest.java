@@ -2,6 +2,7 @@ package isthatkirill.main.event.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import isthatkirill.main.category.dto.CategoryDto;
+import isthatkirill.main.event.dto.ConfirmedRequestsDriftDto;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.UpdateEventDto;
 import isthatkirill.main.event.model.EventState;
@@ -9,6 +10,7 @@ import isthatkirill.main.event.model.EventStateAction;
 import isthatkirill.main.event.service.EventServiceImpl;
 import isthatkirill.main.location.dto.LocationDto;
 import isthatkirill.main.user.dto.UserShortDto;
+import isthatkirill.main.util.CursorPage;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,6 +31,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = AdminEventController.class)
@@ -214,8 +217,8 @@ class AdminEventControllerTest {
 
         when(eventService.getAllEventsByAdmin(
                 anyList(), anyList(), anyList(),
-                any(), any(), anyInt(), anyInt()
-        )).thenReturn(List.of(eventFullDto));
+                any(), any(), anyInt(), anyInt(), any()
+        )).thenReturn(new CursorPage<>(List.of(eventFullDto), null));
 
         mvc.perform(get("/admin/events")
                         .param("users", String.valueOf(users.get(0)), String.valueOf(users.get(1)))
@@ -246,7 +249,7 @@ class AdminEventControllerTest {
 
         verify(eventService, times(1))
                 .getAllEventsByAdmin(users, states, categories,
-                        LocalDateTime.parse(start, formatter), LocalDateTime.parse(end, formatter), from, size);
+                        LocalDateTime.parse(start, formatter), LocalDateTime.parse(end, formatter), from, size, null);
     }
 
     @Test
@@ -257,8 +260,8 @@ class AdminEventControllerTest {
 
         when(eventService.getAllEventsByAdmin(
                 any(), any(), any(),
-                any(), any(), anyInt(), anyInt()
-        )).thenReturn(List.of(eventFullDto));
+                any(), any(), anyInt(), anyInt(), any()
+        )).thenReturn(new CursorPage<>(List.of(eventFullDto), null));
 
         mvc.perform(get("/admin/events")
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -281,7 +284,7 @@ class AdminEventControllerTest {
                 .andExpect(jsonPath("$[0].state").value(eventFullDto.getState().name()));
 
         verify(eventService, times(1))
-                .getAllEventsByAdmin(null, null, null, null, null, defaultFrom, defaultSize);
+                .getAllEventsByAdmin(null, null, null, null, null, defaultFrom, defaultSize, null);
     }
 
     @Test
@@ -292,8 +295,8 @@ class AdminEventControllerTest {
 
         when(eventService.getAllEventsByAdmin(
                 any(), any(), any(),
-                any(), any(), anyInt(), anyInt()
-        )).thenReturn(List.of(eventFullDto));
+                any(), any(), anyInt(), anyInt(), any()
+        )).thenReturn(new CursorPage<>(List.of(eventFullDto), null));
 
         mvc.perform(get("/admin/events")
                         .param("from", from.toString())
@@ -305,7 +308,24 @@ class AdminEventControllerTest {
                 .andExpect(jsonPath("$.reason").value("Incorrectly made request"));
 
         verify(eventService, never())
-                .getAllEventsByAdmin(any(), any(), any(), any(), any(), anyInt(), anyInt());
+                .getAllEventsByAdmin(any(), any(), any(), any(), any(), anyInt(), anyInt(), any());
     }
 
-}
\ No newline at end of file
+    @Test
+    @SneakyThrows
+    void reconcileConfirmedRequestsTest() {
+        when(eventService.reconcileConfirmedRequests())
+                .thenReturn(List.of(new ConfirmedRequestsDriftDto(eventId, 3L, 2L)));
+
+        mvc.perform(post("/admin/events/confirmed-requests/reconcile")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].eventId").value(eventId))
+                .andExpect(jsonPath("$[0].stored").value(3L))
+                .andExpect(jsonPath("$[0].actual").value(2L));
+
+        verify(eventService, times(1)).reconcileConfirmedRequests();
+    }
+
+}
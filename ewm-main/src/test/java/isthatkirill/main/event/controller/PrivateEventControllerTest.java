@@ -2,10 +2,12 @@ package isthatkirill.main.event.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import isthatkirill.main.category.dto.CategoryDto;
+import isthatkirill.main.error.exception.EntityNotFoundException;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.EventShortDto;
 import isthatkirill.main.event.dto.NewEventDto;
 import isthatkirill.main.event.dto.UpdateEventDto;
+import isthatkirill.main.event.model.Event;
 import isthatkirill.main.event.model.EventState;
 import isthatkirill.main.event.model.EventStateAction;
 import isthatkirill.main.event.service.EventServiceImpl;
@@ -16,6 +18,7 @@ import isthatkirill.main.request.dto.ParticipationRequestDto;
 import isthatkirill.main.request.model.RequestProcessedState;
 import isthatkirill.main.request.service.RequestServiceImpl;
 import isthatkirill.main.user.dto.UserShortDto;
+import isthatkirill.main.util.CursorPage;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +32,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static isthatkirill.main.util.Formats.DATE_PATTERN;
 import static org.mockito.ArgumentMatchers.any;
@@ -267,8 +271,8 @@ class PrivateEventControllerTest {
         Integer defaultFrom = 0;
         Integer defaultSize = 10;
 
-        when(eventService.getAllByInitiatorId(anyLong(), anyInt(), anyInt()))
-                .thenReturn(List.of(eventShortDto));
+        when(eventService.getAllByInitiatorId(anyLong(), anyInt(), anyInt(), any()))
+                .thenReturn(new CursorPage<>(List.of(eventShortDto), null));
 
         mvc.perform(get("/users/{userId}/events", userId)
                         .accept(MediaType.APPLICATION_JSON)
@@ -285,7 +289,7 @@ class PrivateEventControllerTest {
                 .andExpect(jsonPath("$[0].views").value(eventShortDto.getViews()))
                 .andExpect(jsonPath("$[0].views").value(eventShortDto.getViews()));
 
-        verify(eventService, times(1)).getAllByInitiatorId(userId, defaultFrom, defaultSize);
+        verify(eventService, times(1)).getAllByInitiatorId(userId, defaultFrom, defaultSize, null);
     }
 
     @Test
@@ -294,8 +298,8 @@ class PrivateEventControllerTest {
         Integer from = 2;
         Integer size = 2;
 
-        when(eventService.getAllByInitiatorId(anyLong(), anyInt(), anyInt()))
-                .thenReturn(List.of(eventShortDto));
+        when(eventService.getAllByInitiatorId(anyLong(), anyInt(), anyInt(), any()))
+                .thenReturn(new CursorPage<>(List.of(eventShortDto), null));
 
         mvc.perform(get("/users/{userId}/events", userId)
                         .param("from", String.valueOf(from))
@@ -314,7 +318,30 @@ class PrivateEventControllerTest {
                 .andExpect(jsonPath("$[0].views").value(eventShortDto.getViews()))
                 .andExpect(jsonPath("$[0].views").value(eventShortDto.getViews()));
 
-        verify(eventService, times(1)).getAllByInitiatorId(userId, from, size);
+        verify(eventService, times(1)).getAllByInitiatorId(userId, from, size, null);
+    }
+
+    @Test
+    @SneakyThrows
+    void getAllByInitiatorIdWithCursorTest() {
+        Integer defaultFrom = 0;
+        Integer size = 1;
+        String cursor = "cursor";
+        String nextCursor = "next-cursor";
+
+        when(eventService.getAllByInitiatorId(anyLong(), anyInt(), anyInt(), any()))
+                .thenReturn(new CursorPage<>(List.of(eventShortDto), nextCursor));
+
+        mvc.perform(get("/users/{userId}/events", userId)
+                        .param("size", String.valueOf(size))
+                        .param("cursor", cursor)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, nextCursor))
+                .andExpect(jsonPath("$[0].annotation").value(eventShortDto.getAnnotation()));
+
+        verify(eventService, times(1)).getAllByInitiatorId(userId, defaultFrom, size, cursor);
     }
 
     @Test
@@ -517,7 +544,7 @@ class PrivateEventControllerTest {
     @Test
     @SneakyThrows
     void getRequestsByInitiator() {
-        when(requestService.getRequestsByInitiator(anyLong(), anyLong())).thenReturn(List.of(requestDtoOne, requestDtoTwo));
+        when(requestService.getRequestsByInitiator(anyLong(), anyLong(), any(), any())).thenReturn(List.of(requestDtoOne, requestDtoTwo));
 
         mvc.perform(get("/users/{userId}/events/{eventId}/requests", userId, eventId)
                         .accept(MediaType.APPLICATION_JSON)
@@ -529,7 +556,65 @@ class PrivateEventControllerTest {
                 .andExpect(jsonPath("$[1].id").value(requestDtoTwo.getId()))
                 .andExpect(jsonPath("$[1].requester").value(requestDtoTwo.getRequester()));
 
-        verify(requestService, times(1)).getRequestsByInitiator(userId, eventId);
+        verify(requestService, times(1)).getRequestsByInitiator(userId, eventId, 0, null);
+    }
+
+    @Test
+    @SneakyThrows
+    void exportRequestsByInitiatorAsCsvTest() {
+        doAnswer(invocation -> {
+            Consumer<ParticipationRequestDto> action = invocation.getArgument(2);
+            action.accept(requestDtoOne);
+            action.accept(requestDtoTwo);
+            return null;
+        }).when(requestService).forEachRequestByInitiator(anyLong(), anyLong(), any());
+
+        mvc.perform(get("/users/{userId}/events/{eventId}/requests/export", userId, eventId)
+                        .param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"event-" + eventId + "-requests.csv\""))
+                .andExpect(content().string("id,event,requester,status,created\n" +
+                        "1," + eventId + ",2,null," + requestDtoOne.getCreated().format(formatter) + "\n" +
+                        "1," + eventId + ",2,null," + requestDtoTwo.getCreated().format(formatter) + "\n"));
+    }
+
+    @Test
+    @SneakyThrows
+    void exportRequestsByInitiatorAsNdjsonTest() {
+        doAnswer(invocation -> {
+            Consumer<ParticipationRequestDto> action = invocation.getArgument(2);
+            action.accept(requestDtoOne);
+            return null;
+        }).when(requestService).forEachRequestByInitiator(anyLong(), anyLong(), any());
+
+        mvc.perform(get("/users/{userId}/events/{eventId}/requests/export", userId, eventId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string(mapper.writeValueAsString(requestDtoOne) + "\n"));
+    }
+
+    @Test
+    @SneakyThrows
+    void exportRequestsByNonInitiatorTest() {
+        doThrow(new EntityNotFoundException(Event.class, eventId))
+                .when(requestService).forEachRequestByInitiator(anyLong(), anyLong(), any());
+
+        mvc.perform(get("/users/{userId}/events/{eventId}/requests/export", userId, eventId))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @SneakyThrows
+    void getRequestsByInitiatorWithInvalidSizeTest() {
+        mvc.perform(get("/users/{userId}/events/{eventId}/requests", userId, eventId)
+                        .param("size", "0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(requestService, never()).getRequestsByInitiator(anyLong(), anyLong(), any(), any());
     }
 
     private void rebuildNewEventDto() {
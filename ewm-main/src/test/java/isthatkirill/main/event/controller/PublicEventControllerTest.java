@@ -7,6 +7,7 @@ import isthatkirill.main.event.model.EventState;
 import isthatkirill.main.event.service.EventServiceImpl;
 import isthatkirill.main.location.dto.LocationDto;
 import isthatkirill.main.user.dto.UserShortDto;
+import isthatkirill.main.util.CursorPage;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -103,6 +104,9 @@ class PublicEventControllerTest {
         Boolean onlyAvailable = true;
         String start = LocalDateTime.now().minusDays(4).format(formatter);
         String end = LocalDateTime.now().plusDays(5).format(formatter);
+        Float lat = 55.75f;
+        Float lon = 37.62f;
+        Float radius = 10f;
         EventSort sort = EventSort.EVENT_DATE;
         Integer from = 0;
         Integer size = 10;
@@ -113,8 +117,9 @@ class PublicEventControllerTest {
         request.setRequestURI(requestURI);
 
         when(eventService.getAllEventsByPublic(anyString(), anyList(), anyBoolean(),
-                any(), any(), anyBoolean(), any(), anyInt(), anyInt(), anyString(), anyString()))
-                .thenReturn(List.of(eventFullDto));
+                any(), any(), anyBoolean(), any(), any(), any(), any(), anyInt(), anyInt(), any(), anyString(),
+                anyString()))
+                .thenReturn(new CursorPage<>(List.of(eventFullDto), null));
 
         mvc.perform(get("/events")
                         .param("text", text)
@@ -123,6 +128,9 @@ class PublicEventControllerTest {
                         .param("rangeStart", start)
                         .param("rangeEnd", end)
                         .param("onlyAvailable", String.valueOf(onlyAvailable))
+                        .param("lat", String.valueOf(lat))
+                        .param("lon", String.valueOf(lon))
+                        .param("radius", String.valueOf(radius))
                         .param("sort", sort.name())
                         .param("from", String.valueOf(from))
                         .param("size", String.valueOf(size))
@@ -148,7 +156,7 @@ class PublicEventControllerTest {
 
         verify(eventService, times(1)).getAllEventsByPublic(text, categories, paid,
                 LocalDateTime.parse(start, formatter), LocalDateTime.parse(end, formatter),
-                onlyAvailable, sort, from, size, requestURI, remoteAddr);
+                onlyAvailable, lat, lon, radius, sort, from, size, null, requestURI, remoteAddr);
     }
 
     @Test
@@ -164,8 +172,8 @@ class PublicEventControllerTest {
         request.setRequestURI(requestURI);
 
         when(eventService.getAllEventsByPublic(any(), any(), any(),
-                any(), any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(List.of(eventFullDto));
+                any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new CursorPage<>(List.of(eventFullDto), null));
 
         mvc.perform(get("/events")
                         .requestAttr("javax.servlet.http.HttpServletRequest", request)
@@ -189,7 +197,8 @@ class PublicEventControllerTest {
                 .andExpect(jsonPath("$[0].state").value(eventFullDto.getState().name()));
 
         verify(eventService, times(1)).getAllEventsByPublic(null, null, null,
-                null, null, defaultAvailable, null, defaultFrom, defaultSize, requestURI, remoteAddr);
+                null, null, defaultAvailable, null, null, null, null, defaultFrom, defaultSize, null, requestURI,
+                remoteAddr);
     }
 
     @Test
@@ -199,8 +208,8 @@ class PublicEventControllerTest {
         Integer size = 10;
 
         when(eventService.getAllEventsByPublic(any(), any(), any(),
-                any(), any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(List.of(eventFullDto));
+                any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new CursorPage<>(List.of(eventFullDto), null));
 
         mvc.perform(get("/events")
                         .param("from", String.valueOf(from))
@@ -212,7 +221,7 @@ class PublicEventControllerTest {
                 .andExpect(jsonPath("$.reason").value("Incorrectly made request"));
 
         verify(eventService, never()).getAllEventsByPublic(any(), any(), any(), any(),
-                any(), any(), any(), any(), any(), any(), any());
+                any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package isthatkirill.main.event.repository;
+
+import isthatkirill.main.event.dto.EventShortView;
+import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventSort;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the projection read path of the public listing with loading the same page as entities with their
+ * associations, the way the listing read it before.
+ * Run with {@code -Dbenchmark=true}.
+ *
+ * @author Kirill Emelyanov
+ */
+
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EventListingBenchmarkTest {
+
+    private static final int EVENTS = 5000;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 500;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = "INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, " +
+                    "request_moderation, published_on, title, state, location_id, initiator_id, category_id) " +
+                    "SELECT 'benchmark ' || x, NOW(), REPEAT('benchmark description ', 300), " +
+                    "DATEADD('MINUTE', x, NOW() + INTERVAL '10' DAY), false, 0, false, NOW(), 'benchmark title ' || x, " +
+                    "'PUBLISHED', 1 + MOD(x, 7), 1 + MOD(x, 5), 1 + MOD(x, 4) FROM SYSTEM_RANGE(1, " + EVENTS + ")")
+    void entityVersusProjectionListingTest() {
+        List<Long> entityIds = findEntities().stream()
+                .map(Event::getId)
+                .collect(Collectors.toList());
+        List<Long> projectionIds = eventRepository.findEventShortViewsByPublic("benchmark", null, null, null, null,
+                        false, null, null, 0, PAGE_SIZE, EventSort.EVENT_DATE).stream()
+                .map(EventShortView::getId)
+                .collect(Collectors.toList());
+        assertThat(projectionIds).hasSize(PAGE_SIZE).isEqualTo(entityIds);
+
+        double entityMicros = measure(this::findEntities);
+        double projectionMicros = measure(() -> eventRepository.findEventShortViewsByPublic("benchmark", null, null,
+                null, null, false, null, null, 0, PAGE_SIZE, EventSort.EVENT_DATE));
+
+        log.info("Public listing page of {} --> entities {} us/page, projection {} us/page, speedup x{}",
+                PAGE_SIZE, Math.round(entityMicros), Math.round(projectionMicros),
+                String.format("%.2f", entityMicros / projectionMicros));
+    }
+
+    private List<Event> findEntities() {
+        return entityManager.createQuery("SELECT e FROM Event e " +
+                        "LEFT JOIN FETCH e.initiator LEFT JOIN FETCH e.category LEFT JOIN FETCH e.location " +
+                        "WHERE (lower(e.annotation) LIKE :text OR lower(e.description) LIKE :text) " +
+                        "AND e.eventDate > :now AND e.state = 'PUBLISHED' " +
+                        "ORDER BY e.eventDate, e.id", Event.class)
+                .setParameter("text", "%benchmark%")
+                .setParameter("now", LocalDateTime.now())
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+    }
+
+    private double measure(Supplier<List<?>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            page.get();
+        }
+        return (System.nanoTime() - startedAt) / 1e3 / ITERATIONS;
+    }
+
+}
@@ -1,13 +1,18 @@
 package isthatkirill.main.event.repository;
 
+import isthatkirill.main.event.dto.EventShortView;
 import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.model.EventCursor;
 import isthatkirill.main.event.model.EventSort;
 import isthatkirill.main.event.model.EventState;
+import isthatkirill.main.event.model.EventViews;
+import isthatkirill.main.location.model.GeoRadius;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.time.LocalDateTime;
@@ -157,7 +162,7 @@ class EventRepositoryTest {
         Integer from = 0;
         Integer size = 10;
 
-        List<Event> events = eventRepository.findEventsByAdmin(users, states, categories, null, null, from, size);
+        List<Event> events = eventRepository.findEventsByAdmin(users, states, categories, null, null, null, from, size);
 
         assertThat(events).hasSize(4)
                 .extracting(Event::getAnnotation)
@@ -171,7 +176,7 @@ class EventRepositoryTest {
         Integer from = 0;
         Integer size = 10;
 
-        List<Event> events = eventRepository.findEventsByAdmin(null, null, null, start, end, from, size);
+        List<Event> events = eventRepository.findEventsByAdmin(null, null, null, start, end, null, from, size);
 
         assertThat(events).hasSize(2)
                 .extracting(Event::getAnnotation)
@@ -183,7 +188,7 @@ class EventRepositoryTest {
         Integer from = 6;
         Integer size = 2;
 
-        List<Event> events = eventRepository.findEventsByAdmin(null, null, null, null, null, from, size);
+        List<Event> events = eventRepository.findEventsByAdmin(null, null, null, null, null, null, from, size);
 
         assertThat(events).hasSize(2)
                 .extracting(Event::getAnnotation)
@@ -200,7 +205,7 @@ class EventRepositoryTest {
         Integer from = 1;
         Integer size = 2;
 
-        List<Event> events = eventRepository.findEventsByAdmin(users, states, categories, start, end, from, size);
+        List<Event> events = eventRepository.findEventsByAdmin(users, states, categories, start, end, null, from, size);
 
         assertThat(events).hasSize(2)
                 .extracting(Event::getAnnotation)
@@ -214,10 +219,11 @@ class EventRepositoryTest {
         Integer size = 10;
         EventSort sort = EventSort.EVENT_DATE;
 
-        List<Event> events = eventRepository.findEventsByPublic(text, null, null, null, null, from, size, sort);
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(text, null, null, null, null, false,
+                null, null, from, size, sort);
 
         assertThat(events).hasSize(6)
-                .extracting(Event::getAnnotation)
+                .extracting(EventShortView::getAnnotation)
                 .containsExactly("c++", "Prolog", "CSS", "Javascript", "HTML", "Spring Data JPA");
     }
 
@@ -228,7 +234,8 @@ class EventRepositoryTest {
         Integer size = 10;
         EventSort sort = EventSort.EVENT_DATE;
 
-        List<Event> events = eventRepository.findEventsByPublic(text, null, null, null, null, from, size, sort);
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(text, null, null, null, null, false,
+                null, null, from, size, sort);
 
         assertThat(events).isEmpty();
     }
@@ -241,10 +248,11 @@ class EventRepositoryTest {
         boolean paid = true;
         EventSort sort = EventSort.EVENT_DATE;
 
-        List<Event> events = eventRepository.findEventsByPublic(null, categories, paid, null, null, from, size, sort);
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(null, categories, paid, null, null,
+                false, null, null, from, size, sort);
 
         assertThat(events).hasSize(1)
-                .extracting(Event::getAnnotation)
+                .extracting(EventShortView::getAnnotation)
                 .containsExactly("c++");
     }
 
@@ -256,10 +264,11 @@ class EventRepositoryTest {
         Integer size = 10;
         EventSort sort = EventSort.EVENT_DATE;
 
-        List<Event> events = eventRepository.findEventsByPublic(null, null, null, start, end, from, size, sort);
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(null, null, null, start, end, false,
+                null, null, from, size, sort);
 
         assertThat(events).hasSize(1)
-                .extracting(Event::getAnnotation)
+                .extracting(EventShortView::getAnnotation)
                 .containsExactly("c++");
     }
 
@@ -274,11 +283,207 @@ class EventRepositoryTest {
         boolean paid = false;
         EventSort sort = EventSort.EVENT_DATE;
 
-        List<Event> events = eventRepository.findEventsByPublic(text, categories, paid, start, end, from, size, sort);
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(text, categories, paid, start, end,
+                false, null, null, from, size, sort);
 
         assertThat(events).hasSize(1)
-                .extracting(Event::getAnnotation)
+                .extracting(EventShortView::getAnnotation)
                 .containsExactly("CSS");
     }
 
-}
\ No newline at end of file
+    @Test
+    void addConfirmedRequestsTest() {
+        eventRepository.addConfirmedRequests(2L, 3L);
+        eventRepository.addConfirmedRequests(2L, -1L);
+
+        assertThat(eventRepository.findById(2L)).isPresent()
+                .get()
+                .extracting(Event::getConfirmedRequests)
+                .isEqualTo(2L);
+    }
+
+    @Test
+    void findAndRecountConfirmedRequestsDriftTest() {
+        eventRepository.addConfirmedRequests(2L, 3L);
+
+        assertThat(eventRepository.findConfirmedRequestsDrift()).hasSize(1)
+                .first()
+                .hasFieldOrPropertyWithValue("eventId", 2L)
+                .hasFieldOrPropertyWithValue("stored", 3L)
+                .hasFieldOrPropertyWithValue("actual", 0L);
+
+        eventRepository.recountConfirmedRequests(List.of(2L));
+
+        assertThat(eventRepository.findConfirmedRequestsDrift()).isEmpty();
+    }
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = "INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, " +
+                    "request_moderation, published_on, title, state, location_id, initiator_id, category_id) VALUES " +
+                    "('Web', NOW(), 'HTML and CSS workshop', NOW() + INTERVAL '1' DAY, false, 0, false, NOW(), " +
+                    "'Web workshop title', 'PUBLISHED', 3, 2, 3)")
+    void findEventsByPublicSortedByRelevanceTest() {
+        List<EventShortView> byRelevance = eventRepository.findEventShortViewsByPublic("css", null, null, null, null,
+                false, null, null, 0, 10, EventSort.RELEVANCE);
+        List<EventShortView> byEventDate = eventRepository.findEventShortViewsByPublic("css", null, null, null, null,
+                false, null, null, 0, 10, EventSort.EVENT_DATE);
+
+        assertThat(byRelevance).extracting(EventShortView::getAnnotation).containsExactly("CSS", "Web");
+        assertThat(byEventDate).extracting(EventShortView::getAnnotation).containsExactly("Web", "CSS");
+    }
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = {
+                    "UPDATE events SET views = 5 WHERE id IN (2, 6)",
+                    "UPDATE events SET views = 1 WHERE id = 4",
+                    "UPDATE events SET views = 3 WHERE id = 8",
+                    "UPDATE events SET views = 2 WHERE id = 9"
+            })
+    void findEventsByPublicSortedByViewsWithCursorTest() {
+        List<EventShortView> firstPage = eventRepository.findEventShortViewsByPublic(null, null, null, null, null,
+                false, null, null, 0, 4, EventSort.VIEWS);
+        EventCursor cursor = EventCursor.after(firstPage.get(firstPage.size() - 1), EventCursor.Key.VIEWS);
+        List<EventShortView> secondPage = eventRepository.findEventShortViewsByPublic(null, null, null, null, null,
+                false, null, cursor, 0, 4, EventSort.VIEWS);
+
+        assertThat(firstPage).extracting(EventShortView::getId).containsExactly(7L, 4L, 9L, 8L);
+        assertThat(secondPage).extracting(EventShortView::getId).containsExactly(2L, 6L);
+    }
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = {
+                    "UPDATE events SET confirmed_requests = participant_limit WHERE id IN (2, 4, 6)",
+                    "UPDATE events SET participant_limit = 0, confirmed_requests = 50 WHERE id = 7"
+            })
+    void findEventsByPublicOnlyAvailableTest() {
+        List<EventShortView> available = eventRepository.findEventShortViewsByPublic(null, null, null, null, null, true,
+                null, null, 0, 3, EventSort.EVENT_DATE);
+        List<EventShortView> all = eventRepository.findEventShortViewsByPublic(null, null, null, null, null, false,
+                null, null, 0, 3, EventSort.EVENT_DATE);
+
+        assertThat(available).extracting(EventShortView::getId).containsExactly(7L, 8L, 9L);
+        assertThat(all).extracting(EventShortView::getId).containsExactly(2L, 4L, 6L);
+    }
+
+    @Test
+    void findEventShortViewsByPublicTest() {
+        List<EventShortView> views = eventRepository.findEventShortViewsByPublic("css", null, null, null, null, false,
+                null, null, 0, 10, EventSort.EVENT_DATE);
+
+        assertThat(views).hasSize(1)
+                .first()
+                .hasFieldOrPropertyWithValue("id", 6L)
+                .hasFieldOrPropertyWithValue("annotation", "CSS")
+                .hasFieldOrPropertyWithValue("categoryId", 3L)
+                .hasFieldOrPropertyWithValue("categoryName", "category_three")
+                .hasFieldOrPropertyWithValue("initiatorId", 2L)
+                .hasFieldOrPropertyWithValue("initiatorName", "vasya")
+                .hasFieldOrPropertyWithValue("paid", false)
+                .hasFieldOrPropertyWithValue("title", "CSS conference title");
+    }
+
+    @Test
+    void updateViewsTest() {
+        int updated = eventRepository.updateViews(2L, 42L);
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(eventRepository.findById(2L)).isPresent()
+                .get()
+                .extracting(Event::getViews)
+                .isEqualTo(42L);
+    }
+
+    @Test
+    void findEventViewsByStateAndIdGreaterThanTest() {
+        List<EventViews> events = eventRepository.findEventViewsByStateAndIdGreaterThan(EventState.PUBLISHED, 4L,
+                PageRequest.of(0, 3, Sort.by("id")));
+
+        assertThat(events).extracting(EventViews::getId).containsExactly(6L, 7L, 8L);
+        assertThat(events).extracting(EventViews::getPublishedOn).doesNotContainNull();
+    }
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql",
+            "/testdata/test-geo-events.sql"})
+    void findEventsByPublicWithinRadiusTest() {
+        GeoRadius area = new GeoRadius(55.75, 37.62, 10);
+
+        List<EventShortView> byEventDate = eventRepository.findEventShortViewsByPublic(null, null, null, null, null,
+                false, area, null, 0, 10, EventSort.EVENT_DATE);
+        List<EventShortView> byDistance = eventRepository.findEventShortViewsByPublic(null, null, null, null, null,
+                false, area, null, 0, 10, EventSort.DISTANCE);
+        List<EventShortView> byText = eventRepository.findEventShortViewsByPublic("tour", null, null, null, null, false,
+                area, null, 0, 10, EventSort.EVENT_DATE);
+        List<EventShortView> views = eventRepository.findEventShortViewsByPublic(null, null, null, null, null, false,
+                new GeoRadius(55.75, 37.62, 100), null, 0, 10, EventSort.DISTANCE);
+
+        assertThat(byEventDate).extracting(EventShortView::getId).containsExactly(13L, 14L);
+        assertThat(byDistance).extracting(EventShortView::getId).containsExactly(14L, 13L);
+        assertThat(byText).extracting(EventShortView::getId).containsExactly(14L);
+        assertThat(views).extracting(EventShortView::getId).containsExactly(14L, 13L, 15L);
+    }
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql",
+            "/testdata/test-geo-events.sql"})
+    void findEventsByPublicWithinWideRadiusTest() {
+        GeoRadius area = new GeoRadius(55.75, 37.62, 3000);
+
+        List<EventShortView> events = eventRepository.findEventShortViewsByPublic(null, null, null, null, null, false,
+                area, null, 0, 10, EventSort.DISTANCE);
+
+        assertThat(area.getCellRanges()).isEmpty();
+        assertThat(events).extracting(EventShortView::getId).containsExactly(14L, 13L, 15L, 4L, 7L, 8L, 6L);
+    }
+
+    @Test
+    void geoRadiusCellRangesTest() {
+        GeoRadius area = new GeoRadius(55.75, 37.62, 10);
+        long cell = GeoRadius.cellOf(55.76, 37.62);
+
+        assertThat(area.getCellRanges()).hasSize(5)
+                .anyMatch(range -> range[0] <= cell && cell <= range[1]);
+        assertThat(new GeoRadius(89.9, 0, 50).getLonRanges()).singleElement()
+                .isEqualTo(new double[]{-180, 180});
+        assertThat(GeoRadius.cellOf(90, 180)).isEqualTo(GeoRadius.CELL_ROWS * GeoRadius.CELL_COLUMNS - 1L);
+    }
+
+    @Test
+    void geoRadiusAcrossAntimeridianTest() {
+        GeoRadius area = new GeoRadius(0, 179.95, 20);
+        long east = GeoRadius.cellOf(0, 179.95);
+        long west = GeoRadius.cellOf(0, -179.95);
+
+        assertThat(area.crossesAntimeridian()).isTrue();
+        assertThat(area.getLonRanges()).hasSize(2)
+                .anyMatch(range -> range[0] == -180 && range[1] < -179.7)
+                .anyMatch(range -> range[0] > 179.7 && range[1] == 180);
+        assertThat(area.getCellRanges())
+                .anyMatch(range -> range[0] <= east && east <= range[1])
+                .anyMatch(range -> range[0] <= west && west <= range[1]);
+    }
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql",
+            "/testdata/test-antimeridian-events.sql"})
+    void findEventsByPublicAcrossAntimeridianTest() {
+        List<EventShortView> byDistance = eventRepository.findEventShortViewsByPublic(null, null, null, null, null,
+                false, new GeoRadius(0, 179.95, 20), null, 0, 10, EventSort.DISTANCE);
+        List<EventShortView> fromWest = eventRepository.findEventShortViewsByPublic(null, null, null, null, null,
+                false, new GeoRadius(0, -179.95, 20), null, 0, 10, EventSort.DISTANCE);
+
+        assertThat(byDistance).extracting(EventShortView::getId).containsExactly(14L, 13L);
+        assertThat(fromWest).extracting(EventShortView::getId).containsExactly(13L, 14L);
+    }
+
+    @Test
+    void toTsQueryTest() {
+        assertThat(CustomEventRepositoryImpl.toTsQuery("Spring  conf!")).isEqualTo("spring:* & conf:*");
+        assertThat(CustomEventRepositoryImpl.toTsQuery("C++ & 'drop'")).isEqualTo("c:* & drop:*");
+        assertThat(CustomEventRepositoryImpl.toTsQuery("!!!")).isEmpty();
+    }
+
+}
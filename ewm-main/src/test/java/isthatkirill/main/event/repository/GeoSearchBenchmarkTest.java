@@ -0,0 +1,91 @@
+package isthatkirill.main.event.repository;
+
+import isthatkirill.main.event.dto.EventShortView;
+import isthatkirill.main.event.model.EventSort;
+import isthatkirill.main.location.model.GeoRadius;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures radius search over a million locations with and without the grid cell index.
+ * Run with {@code -Dbenchmark=true}.
+ *
+ * @author Kirill Emelyanov
+ */
+
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GeoSearchBenchmarkTest {
+
+    private static final int GRID = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = {
+                    "INSERT INTO locations (lat, lon) SELECT -60 + MOD(x, " + GRID + ") * 0.12, " +
+                            "-170 + (x / " + GRID + ") * 0.34 FROM SYSTEM_RANGE(0, " + GRID * GRID + " - 1)",
+                    "UPDATE locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + " +
+                            "LEAST(3599, FLOOR((lon + 180) / 0.1)) WHERE cell IS NULL",
+                    "INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, " +
+                            "request_moderation, published_on, title, state, location_id, initiator_id, category_id) " +
+                            "SELECT 'geo ' || id, NOW(), 'geo benchmark', NOW() + INTERVAL '10' DAY, false, 0, false, " +
+                            "NOW(), 'geo title', 'PUBLISHED', id, 1, 1 FROM locations WHERE id > 7"
+            })
+    void radiusSearchWithAndWithoutCellIndexTest() {
+        GeoRadius area = new GeoRadius(10.02, 0.05, 25);
+
+        List<Long> indexedIds = ids(search(area));
+        assertThat(indexedIds).isNotEmpty();
+        double indexedMicros = measure(() -> search(area));
+
+        jdbcTemplate.execute("DROP INDEX idx_locations_cell");
+        assertThat(ids(search(area))).isEqualTo(indexedIds);
+        double bboxMicros = measure(() -> search(area));
+
+        log.info("Radius search of {} km over {} locations --> cell index {} us/page, lat/lon index only {} us/page, " +
+                        "speedup x{}", area.getRadiusKm(), GRID * GRID, Math.round(indexedMicros),
+                Math.round(bboxMicros), String.format("%.2f", bboxMicros / indexedMicros));
+    }
+
+    private List<EventShortView> search(GeoRadius area) {
+        return eventRepository.findEventShortViewsByPublic(null, null, null, null, null, false, area, null, 0,
+                PAGE_SIZE, EventSort.DISTANCE);
+    }
+
+    private List<Long> ids(List<EventShortView> events) {
+        return events.stream().map(EventShortView::getId).collect(Collectors.toList());
+    }
+
+    private double measure(Supplier<List<?>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            page.get();
+        }
+        return (System.nanoTime() - startedAt) / 1e3 / ITERATIONS;
+    }
+
+}
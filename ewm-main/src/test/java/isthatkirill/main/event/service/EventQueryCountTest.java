@@ -0,0 +1,71 @@
+package isthatkirill.main.event.service;
+
+import isthatkirill.main.event.model.EventSort;
+import isthatkirill.main.util.CursorPage;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"})
+class EventQueryCountTest {
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private StatServiceImpl statService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllByInitiatorIdStatementCountTest() {
+        CursorPage<?> firstPage = eventService.getAllByInitiatorId(1L, 0, 3, null);
+        assertThat(firstPage.getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        eventService.getAllByInitiatorId(1L, 0, 3, firstPage.getNextCursor());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllEventsByAdminStatementCountTest() {
+        CursorPage<?> page = eventService.getAllEventsByAdmin(null, null, null, null, null, 0, 20, null);
+
+        assertThat(page.getContent()).hasSize(12);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllEventsByPublicStatementCountTest() {
+        CursorPage<?> page = eventService.getAllEventsByPublic("conference", null, null, null, null,
+                true, null, null, null, EventSort.EVENT_DATE, 0, 20, null, "/events", "192.168.1.1");
+
+        assertThat(page.getContent()).hasSize(6);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+}
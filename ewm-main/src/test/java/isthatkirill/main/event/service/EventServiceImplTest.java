@@ -2,6 +2,7 @@ package isthatkirill.main.event.service;
 
 import isthatkirill.main.error.exception.EntityNotFoundException;
 import isthatkirill.main.error.exception.ForbiddenException;
+import isthatkirill.main.event.dto.ConfirmedRequestsDriftDto;
 import isthatkirill.main.event.dto.EventFullDto;
 import isthatkirill.main.event.dto.EventShortDto;
 import isthatkirill.main.event.dto.NewEventDto;
@@ -12,6 +13,8 @@ import isthatkirill.main.event.model.EventStateAction;
 import isthatkirill.main.location.dto.LocationDto;
 import isthatkirill.main.request.repository.RequestRepository;
 import isthatkirill.main.user.repository.UserRepository;
+import isthatkirill.main.util.CursorPage;
+import isthatkirill.stats.StatClient;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -42,9 +45,15 @@ class EventServiceImplTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ViewsRanking viewsRanking;
+
     @MockBean
     private StatServiceImpl statService;
 
+    @MockBean
+    private StatClient statClient;
+
     @MockBean
     private RequestRepository requestRepository;
 
@@ -157,7 +166,7 @@ class EventServiceImplTest {
         Integer from = 0;
         Integer size = 10;
 
-        List<EventShortDto> events = eventService.getAllByInitiatorId(userId, from, size);
+        List<EventShortDto> events = eventService.getAllByInitiatorId(userId, from, size, null).getContent();
 
         assertThat(events).hasSize(6)
                 .extracting(EventShortDto::getId)
@@ -174,7 +183,7 @@ class EventServiceImplTest {
         Integer from = 2;
         Integer size = 2;
 
-        List<EventShortDto> events = eventService.getAllByInitiatorId(userId, from, size);
+        List<EventShortDto> events = eventService.getAllByInitiatorId(userId, from, size, null).getContent();
 
         assertThat(events).hasSize(2)
                 .extracting(EventShortDto::getId)
@@ -191,7 +200,7 @@ class EventServiceImplTest {
         Integer from = 0;
         Integer size = 10;
 
-        List<EventShortDto> events = eventService.getAllByInitiatorId(userId, from, size);
+        List<EventShortDto> events = eventService.getAllByInitiatorId(userId, from, size, null).getContent();
 
         assertThat(events).isEmpty();
 
@@ -399,7 +408,7 @@ class EventServiceImplTest {
         Integer from = 0;
         Integer size = 10;
 
-        List<EventFullDto> events = eventService.getAllEventsByAdmin(null, null, null, start, end, from, size);
+        List<EventFullDto> events = eventService.getAllEventsByAdmin(null, null, null, start, end, from, size, null).getContent();
 
         assertThat(events).hasSize(2)
                 .extracting(EventShortDto::getId)
@@ -417,7 +426,7 @@ class EventServiceImplTest {
         Integer from = 0;
         Integer size = 10;
 
-        List<EventFullDto> events = eventService.getAllEventsByAdmin(userIds, states, null, null, null, from, size);
+        List<EventFullDto> events = eventService.getAllEventsByAdmin(userIds, states, null, null, null, from, size, null).getContent();
 
         assertThat(events).hasSize(4)
                 .extracting(EventShortDto::getId)
@@ -438,7 +447,7 @@ class EventServiceImplTest {
         Integer from = 0;
         Integer size = 1;
 
-        List<EventFullDto> events = eventService.getAllEventsByAdmin(userIds, states, categories, start, end, from, size);
+        List<EventFullDto> events = eventService.getAllEventsByAdmin(userIds, states, categories, start, end, from, size, null).getContent();
 
         assertThat(events).hasSize(1)
                 .extracting(EventShortDto::getId)
@@ -460,14 +469,14 @@ class EventServiceImplTest {
 
 
         List<EventShortDto> events = eventService.getAllEventsByPublic(text, null, null, null, null,
-                true, sort, from, size, uri, ip);
+                true, null, null, null, sort, from, size, null, uri, ip).getContent();
 
         assertThat(events).hasSize(7)
                 .extracting(EventShortDto::getId)
                 .containsExactly(1L, 2L, 4L, 6L, 7L, 8L, 9L);
 
         verify(statService, times(1)).getViews(anyList());
-        verify(statService, times(1)).getConfirmedRequests(anyList());
+        verify(statService, never()).getConfirmedRequests(anyList());
         verify(statService, times(1)).hit(uri, ip);
     }
 
@@ -484,6 +493,9 @@ class EventServiceImplTest {
                 9L, 100L);
 
         when(statService.getViews(any())).thenReturn(views);
+        when(statClient.getHits(anyMap(), any(), anyString(), anyBoolean())).thenReturn(views);
+        viewsRanking.refresh();
+        clearInvocations(statService);
 
         String uri = "/events";
         String ip = "192.168.1.1";
@@ -493,14 +505,14 @@ class EventServiceImplTest {
         EventSort sort = EventSort.VIEWS;
 
         List<EventShortDto> events = eventService.getAllEventsByPublic(text, null, null, null, null,
-                false, sort, from, size, uri, ip);
+                false, null, null, null, sort, from, size, null, uri, ip).getContent();
 
         assertThat(events).hasSize(7)
                 .extracting(EventShortDto::getId)
                 .containsExactly(2L, 6L, 1L, 4L, 7L, 8L, 9L);
 
         verify(statService, times(1)).getViews(anyList());
-        verify(statService, times(1)).getConfirmedRequests(anyList());
+        verify(statService, never()).getConfirmedRequests(anyList());
         verify(statService, times(1)).hit(uri, ip);
     }
 
@@ -518,6 +530,7 @@ class EventServiceImplTest {
                 .isEqualTo("java updated");
 
         verify(statService, times(1)).getViews(anyList());
+        verify(statService, times(1)).getQueuedViews(uri);
         verify(statService, times(1)).getConfirmedRequests(anyList());
         verify(statService, times(1)).hit(uri, ip);
     }
@@ -601,4 +614,139 @@ class EventServiceImplTest {
         assertThrows(EntityNotFoundException.class, () -> eventService.getEventByIdAndInitiatorId(userId, eventId));
     }
 
-}
\ No newline at end of file
+    @Test
+    @Order(24)
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql", "/testdata/test-requests.sql"},
+            statements = "UPDATE events SET confirmed_requests = 5 WHERE id = 2")
+    void reconcileConfirmedRequestsTest() {
+        List<ConfirmedRequestsDriftDto> drift = eventService.reconcileConfirmedRequests();
+
+        assertThat(drift).hasSize(1)
+                .first()
+                .hasFieldOrPropertyWithValue("eventId", 2L)
+                .hasFieldOrPropertyWithValue("stored", 5L)
+                .hasFieldOrPropertyWithValue("actual", 2L);
+        assertThat(eventService.reconcileConfirmedRequests()).isEmpty();
+    }
+
+    @Test
+    @Order(25)
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"})
+    void getAllByInitiatorIdWithCursorTest() {
+        Long userId = 1L;
+        Integer size = 2;
+
+        CursorPage<EventShortDto> firstPage = eventService.getAllByInitiatorId(userId, 0, size, null);
+        CursorPage<EventShortDto> secondPage = eventService.getAllByInitiatorId(userId, 0, size, firstPage.getNextCursor());
+        CursorPage<EventShortDto> lastPage = eventService.getAllByInitiatorId(userId, 0, size, secondPage.getNextCursor());
+
+        assertThat(firstPage.getContent()).extracting(EventShortDto::getId).containsExactly(1L, 2L);
+        assertThat(secondPage.getContent()).extracting(EventShortDto::getId).containsExactly(3L, 4L);
+        assertThat(lastPage.getContent()).extracting(EventShortDto::getId).containsExactly(5L);
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    @Order(26)
+    void getAllEventsByPublicWithCursorTest() {
+        String uri = "/events";
+        String ip = "192.168.1.1";
+        Integer size = 3;
+        EventSort sort = EventSort.EVENT_DATE;
+
+        CursorPage<EventShortDto> firstPage = eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, sort, 0, size, null, uri, ip);
+        CursorPage<EventShortDto> secondPage = eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, sort, 0, size, firstPage.getNextCursor(), uri, ip);
+
+        assertThat(firstPage.getContent()).extracting(EventShortDto::getId).containsExactly(2L, 4L, 6L);
+        assertThat(secondPage.getContent()).extracting(EventShortDto::getId).containsExactly(7L, 8L, 9L);
+    }
+
+    @Test
+    @Order(27)
+    void getAllEventsWithInvalidCursorTest() {
+        String adminCursor = eventService.getAllEventsByAdmin(null, null, null, null, null, 0, 1, null)
+                .getNextCursor();
+
+        assertThrows(IllegalStateException.class, () -> eventService.getAllByInitiatorId(1L, 0, 1, "not-a-cursor"));
+        assertThrows(IllegalStateException.class, () -> eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, EventSort.EVENT_DATE, 0, 1, adminCursor, "/events", "192.168.1.1"));
+        assertThrows(IllegalStateException.class, () -> eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, EventSort.RELEVANCE, 0, 1, adminCursor, "/events", "192.168.1.1"));
+    }
+
+    @Test
+    @Order(28)
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"})
+    void getAllEventsByPublicSortingByViewsWithCursorTest() {
+        Map<Long, Long> views = Map.of(
+                2L, 5L,
+                4L, 1L,
+                6L, 5L,
+                8L, 3L,
+                9L, 2L);
+
+        when(statService.getViews(any())).thenReturn(views);
+        when(statClient.getHits(anyMap(), any(), anyString(), anyBoolean())).thenReturn(views);
+
+        assertThat(viewsRanking.refresh()).isEqualTo(5);
+        assertThat(viewsRanking.refresh()).isZero();
+
+        String uri = "/events";
+        String ip = "192.168.1.1";
+        Integer size = 3;
+        EventSort sort = EventSort.VIEWS;
+
+        CursorPage<EventShortDto> firstPage = eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, sort, 0, size, null, uri, ip);
+        CursorPage<EventShortDto> secondPage = eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, sort, 0, size, firstPage.getNextCursor(), uri, ip);
+
+        assertThat(firstPage.getContent()).extracting(EventShortDto::getId).containsExactly(7L, 4L, 9L);
+        assertThat(secondPage.getContent()).extracting(EventShortDto::getId).containsExactly(8L, 2L, 6L);
+    }
+
+    @Test
+    @Order(29)
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = "UPDATE events SET confirmed_requests = participant_limit WHERE id IN (2, 4)")
+    void getAllEventsByPublicOnlyAvailableFullPageTest() {
+        Integer size = 2;
+
+        CursorPage<EventShortDto> page = eventService.getAllEventsByPublic(null, null, null, null, null,
+                true, null, null, null, EventSort.EVENT_DATE, 0, size, null, "/events", "192.168.1.1");
+
+        assertThat(page.getContent()).extracting(EventShortDto::getId).containsExactly(6L, 7L);
+        assertThat(page.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    @Order(30)
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql",
+            "/testdata/test-geo-events.sql"})
+    void getAllEventsByPublicWithinRadiusTest() {
+        CursorPage<EventShortDto> page = eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, 55.75f, 37.62f, 100f, EventSort.DISTANCE, 0, 2, null, "/events", "192.168.1.1");
+
+        assertThat(page.getContent()).extracting(EventShortDto::getId).containsExactly(14L, 13L);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @Order(31)
+    void getAllEventsByPublicWithInvalidAreaTest() {
+        String uri = "/events";
+        String ip = "192.168.1.1";
+
+        assertThrows(IllegalStateException.class, () -> eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, 55.75f, 37.62f, null, EventSort.EVENT_DATE, 0, 10, null, uri, ip));
+        assertThrows(IllegalStateException.class, () -> eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, 95f, 37.62f, 10f, EventSort.EVENT_DATE, 0, 10, null, uri, ip));
+        assertThrows(IllegalStateException.class, () -> eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, 55.75f, 37.62f, 0f, EventSort.EVENT_DATE, 0, 10, null, uri, ip));
+        assertThrows(IllegalStateException.class, () -> eventService.getAllEventsByPublic(null, null, null, null, null,
+                false, null, null, null, EventSort.DISTANCE, 0, 10, null, uri, ip));
+    }
+
+}
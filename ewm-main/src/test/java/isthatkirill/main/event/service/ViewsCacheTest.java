@@ -0,0 +1,159 @@
+package isthatkirill.main.event.service;
+
+import isthatkirill.main.event.model.Event;
+import isthatkirill.stats.StatClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+class ViewsCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 6, 1, 12, 0, 0);
+
+    private final StatClient statClient = mock(StatClient.class);
+    private final MutableClock clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+    private final Event event = Event.builder()
+            .id(1L)
+            .publishedOn(NOW.minusDays(1))
+            .build();
+
+    private ViewsCache viewsCache;
+
+    @BeforeEach
+    void buildCache() {
+        viewsCache = new ViewsCache(statClient, 2, Duration.ofSeconds(10), Duration.ofSeconds(5),
+                Duration.ofMinutes(10), clock);
+        when(statClient.getHits(anyMap(), any(), anyString(), anyBoolean()))
+                .thenAnswer(invocation -> new HashMap<>(Map.of(1L, 3L)));
+    }
+
+    @Test
+    void missThenHitTest() {
+        assertThat(viewsCache.getViews(List.of(event))).containsEntry(1L, 3L);
+        assertThat(viewsCache.getViews(List.of(event))).containsEntry(1L, 3L);
+
+        verify(statClient, times(1)).getHits(Map.of(1L, NOW.minusDays(1)), NOW.minusSeconds(5), "/events/", true);
+        assertThat(viewsCache.getMisses()).isEqualTo(1);
+        assertThat(viewsCache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void staleEntryFetchesOnlyNewViewsTest() {
+        when(statClient.getHitsAfter(anyMap(), any(), any(), anyString(), anyBoolean()))
+                .thenReturn(Map.of(1L, 2L));
+        viewsCache.getViews(List.of(event));
+
+        clock.advance(Duration.ofSeconds(11));
+
+        assertThat(viewsCache.getViews(List.of(event))).containsEntry(1L, 5L);
+        verify(statClient, times(1)).getHits(anyMap(), any(), anyString(), anyBoolean());
+        verify(statClient).getHitsAfter(Map.of(1L, NOW.minusDays(1)), NOW.minusSeconds(5), NOW.plusSeconds(6),
+                "/events/", true);
+        assertThat(viewsCache.getRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    void failedRefreshServesCachedViewsTest() {
+        when(statClient.getHitsAfter(anyMap(), any(), any(), anyString(), anyBoolean()))
+                .thenThrow(new RuntimeException("stat server is down"));
+        viewsCache.getViews(List.of(event));
+
+        clock.advance(Duration.ofSeconds(11));
+
+        assertThat(viewsCache.getViews(List.of(event))).containsEntry(1L, 3L);
+    }
+
+    @Test
+    void expiredEntryIsReloadedTest() {
+        viewsCache.getViews(List.of(event));
+
+        clock.advance(Duration.ofMinutes(11));
+        viewsCache.getViews(List.of(event));
+
+        verify(statClient, times(2)).getHits(anyMap(), any(), anyString(), anyBoolean());
+        verify(statClient, never()).getHitsAfter(anyMap(), any(), any(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void eventsAreCountedFromOwnPublicationTest() {
+        Event old = Event.builder().id(2L).publishedOn(NOW.minusYears(2)).build();
+        Event fresh = Event.builder().id(3L).publishedOn(NOW.minusSeconds(1)).build();
+
+        viewsCache.getViews(List.of(old, fresh));
+
+        verify(statClient).getHits(Map.of(2L, NOW.minusYears(2), 3L, NOW.minusSeconds(5)), NOW.minusSeconds(5),
+                "/events/", true);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedTest() {
+        viewsCache.getViews(List.of(event, buildEvent(2L), buildEvent(3L)));
+
+        assertThat(viewsCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void unpublishedEventsAreSkippedTest() {
+        Event unpublished = Event.builder().id(4L).build();
+
+        assertThat(viewsCache.getViews(List.of(unpublished))).isEmpty();
+        verifyNoInteractions(statClient);
+    }
+
+    private Event buildEvent(Long id) {
+        return Event.builder()
+                .id(id)
+                .publishedOn(NOW.minusDays(1))
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
@@ -4,11 +4,13 @@ import isthatkirill.main.location.model.Location;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DataJpaTest
 @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-locations.sql"})
@@ -29,4 +31,22 @@ class LocationRepositoryTest {
                 .hasFieldOrPropertyWithValue("lat", lat)
                 .hasFieldOrPropertyWithValue("lon", lon);
     }
-}
\ No newline at end of file
+
+    @Test
+    void insertIfAbsentTest() {
+        locationRepository.insertIfAbsent(10.10f, 20.20f);
+        locationRepository.insertIfAbsent(13.13f, 23.23f);
+        locationRepository.insertIfAbsent(13.13f, 23.23f);
+
+        assertThat(locationRepository.count()).isEqualTo(4);
+        assertThat(locationRepository.findByLatAndLon(13.13f, 23.23f)).isPresent();
+    }
+
+    @Test
+    void duplicateCoordinatesRejectedTest() {
+        Location duplicate = Location.builder().lat(10.10f).lon(20.20f).build();
+
+        assertThrows(DataIntegrityViolationException.class, () -> locationRepository.saveAndFlush(duplicate));
+    }
+
+}
@@ -0,0 +1,56 @@
+package isthatkirill.main.location.service;
+
+import isthatkirill.main.location.dto.LocationDto;
+import isthatkirill.main.location.model.Location;
+import isthatkirill.main.location.repository.LocationRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = "locations.cache.max-size=100")
+@Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-locations.sql"})
+class LocationServiceImplTest {
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void getOrCreateExistingLocationTest() {
+        Location location = locationService.getOrCreate(LocationDto.builder().lat(11.11f).lon(21.21f).build());
+
+        assertThat(location.getId()).isEqualTo(2L);
+        assertThat(locationRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void getOrCreateNewLocationOnceTest() {
+        LocationDto locationDto = LocationDto.builder().lat(55.75f).lon(37.62f).build();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Long id = locationService.getOrCreate(locationDto).getId();
+        statistics.clear();
+        Long cachedId = locationService.getOrCreate(locationDto).getId();
+
+        assertThat(cachedId).isEqualTo(id);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(locationRepository.count()).isEqualTo(4);
+    }
+
+}
@@ -81,7 +81,7 @@ class PrivateRequestControllerTest {
     @Test
     @SneakyThrows
     void getRequestsByUserIdTest() {
-        when(requestService.getRequestsByUserId(any())).thenReturn(List.of(requestDto));
+        when(requestService.getRequestsByUserId(any(), any(), any())).thenReturn(List.of(requestDto));
 
         mvc.perform(get("/users/{userId}/requests", userId)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -93,7 +93,7 @@ class PrivateRequestControllerTest {
                 .andExpect(jsonPath("$[0].created").value(requestDto.getCreated().format(formatter)))
                 .andExpect(jsonPath("$[0].status").value(requestDto.getStatus().name()));
 
-        verify(requestService, times(1)).getRequestsByUserId(userId);
+        verify(requestService, times(1)).getRequestsByUserId(userId, 0, null);
     }
 
     @Test
@@ -0,0 +1,50 @@
+package isthatkirill.main.request.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import isthatkirill.main.request.dto.ParticipationRequestDto;
+import isthatkirill.main.request.model.RequestExportFormat;
+import isthatkirill.main.request.model.RequestState;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+class RequestExportWriterTest {
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final RequestExportWriter writer = new RequestExportWriter(response, RequestExportFormat.CSV,
+            new ObjectMapper(), "event-1-requests");
+
+    @Test
+    void flushesEveryBatchOfLinesTest() throws Exception {
+        response.setBufferSize(Integer.MAX_VALUE);
+
+        for (long id = 1; id < RequestExportWriter.FLUSH_LINES; id++) {
+            writer.accept(buildRequest(id));
+        }
+        assertThat(response.isCommitted()).isFalse();
+
+        writer.accept(buildRequest(RequestExportWriter.FLUSH_LINES));
+        assertThat(response.isCommitted()).isTrue();
+
+        writer.finish();
+        assertThat(response.getContentAsString().split("\n")).hasSize(RequestExportWriter.FLUSH_LINES + 1);
+    }
+
+    private ParticipationRequestDto buildRequest(long id) {
+        return ParticipationRequestDto.builder()
+                .id(id)
+                .event(1L)
+                .requester(id)
+                .status(RequestState.PENDING)
+                .created(LocalDateTime.of(2023, 6, 1, 12, 0, 0))
+                .build();
+    }
+
+}
@@ -0,0 +1,33 @@
+package isthatkirill.main.request.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers the SQL Hibernate sends, so that tests can inspect the plans of generated queries.
+ *
+ * @author Kirill Emelyanov
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    public static List<String> drain() {
+        synchronized (STATEMENTS) {
+            List<String> statements = new ArrayList<>(STATEMENTS);
+            STATEMENTS.clear();
+            return statements;
+        }
+    }
+
+}
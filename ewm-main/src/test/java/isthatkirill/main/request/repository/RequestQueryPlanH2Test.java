@@ -0,0 +1,95 @@
+package isthatkirill.main.request.repository;
+
+import isthatkirill.main.request.dto.ParticipationRequestDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails when H2 plans a table scan for a request query on 50k requests after {@code ANALYZE}.
+ * Only the H2 planner and the db/migration/h2 indexes are checked here; PostgreSQL plans are checked by
+ * {@link isthatkirill.main.QueryPlanPostgreSqlTest}.
+ *
+ * @author Kirill Emelyanov
+ */
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "isthatkirill.main.request.repository.RecordingStatementInspector")
+@Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+        statements = {
+                "INSERT INTO users (name, email) SELECT 'user ' || x, 'user' || x || '@yandex.ru' FROM SYSTEM_RANGE(1, 1000)",
+                "INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, " +
+                        "request_moderation, published_on, title, state, location_id, initiator_id, category_id) " +
+                        "SELECT 'plan ' || x, NOW(), 'plan description', NOW() + INTERVAL '10' DAY, false, 0, true, NOW(), " +
+                        "'plan title ' || x, 'PUBLISHED', 1 + MOD(x, 7), 1 + MOD(x, 1000), 1 + MOD(x, 4) FROM SYSTEM_RANGE(1, 1000)",
+                "INSERT INTO requests (requester_id, event_id, status, created) " +
+                        "SELECT 1 + MOD(x, 1000), 1 + MOD(x / 1000 + MOD(x, 1000) * 7, 1000), " +
+                        "CASE WHEN MOD(x, 3) = 0 THEN 'CONFIRMED' ELSE 'PENDING' END, NOW() FROM SYSTEM_RANGE(0, 49999)",
+                "ANALYZE"
+        })
+class RequestQueryPlanH2Test {
+
+    private static final Pattern FULL_SCAN = Pattern.compile("\\.(REQUESTS|EVENTS|USERS)\\.tableScan");
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void requestQueriesUseIndexesOnH2Test() {
+        RecordingStatementInspector.drain();
+
+        requestRepository.getConfirmedRequests(100L);
+        requestRepository.getConfirmedRequests(List.of(100L, 200L, 300L));
+        requestRepository.findRequestByRequesterIdAndEventId(10L, 100L);
+        requestRepository.findRequestsByRequesterId(10L, PageRequest.of(0, 10, Sort.by("id")));
+        requestRepository.findRequestsByEventInitiatorIdAndEventId(100L, 100L, PageRequest.of(0, 10, Sort.by("id")));
+        requestRepository.findRequestsByIdIn(List.of(1L, 2L, 3L));
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ParticipationRequestDto> requests = requestRepository.streamRequestsByEventId(100L)) {
+                assertThat(requests).isNotEmpty();
+            }
+        });
+
+        List<String> statements = RecordingStatementInspector.drain();
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            assertThat(explain(sql)).as(sql).doesNotContainPattern(FULL_SCAN);
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, 1);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+}
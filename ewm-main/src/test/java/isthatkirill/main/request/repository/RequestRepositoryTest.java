@@ -1,16 +1,23 @@
 package isthatkirill.main.request.repository;
 
 import isthatkirill.main.event.model.EventConfirmedRequests;
+import isthatkirill.main.request.dto.ParticipationRequestDto;
 import isthatkirill.main.request.model.Request;
+import isthatkirill.main.request.model.RequestState;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 /**
  * @author Kirill Emelyanov
@@ -50,13 +57,24 @@ class RequestRepositoryTest {
     void findRequestsByRequesterIdTest() {
         Long userId = 2L;
 
-        List<Request> requests = requestRepository.findRequestsByRequesterId(userId);
+        List<Request> requests = requestRepository.findRequestsByRequesterId(userId, Pageable.unpaged());
 
         assertThat(requests).hasSize(2)
                 .extracting(Request::getId)
                 .containsExactlyInAnyOrder(2L, 3L);
     }
 
+    @Test
+    void updateStatusOnlyFromExpectedStatusTest() {
+        Long requestId = 3L;
+
+        assertThat(requestRepository.updateStatus(requestId, RequestState.PENDING, RequestState.CANCELED)).isZero();
+        assertThat(requestRepository.updateStatus(requestId, RequestState.CONFIRMED, RequestState.CANCELED))
+                .isEqualTo(1);
+        assertThat(requestRepository.updateStatus(requestId, RequestState.CONFIRMED, RequestState.CANCELED)).isZero();
+        assertThat(requestRepository.findStatusById(requestId)).isEqualTo(RequestState.CANCELED);
+    }
+
     @Test
     void findRequestsByRequesterIdAndId() {
         Long userId = 2L;
@@ -105,13 +123,34 @@ class RequestRepositoryTest {
         Long userId = 4L;
         Long eventId = 8L;
 
-        List<Request> requests = requestRepository.findRequestsByEventInitiatorIdAndEventId(userId, eventId);
+        List<Request> requests = requestRepository.findRequestsByEventInitiatorIdAndEventId(userId, eventId, Pageable.unpaged());
 
         assertThat(requests).hasSize(3)
                 .extracting(Request::getId)
                 .containsExactlyInAnyOrder(5L, 6L, 7L);
     }
 
+    @Test
+    void findRequestsByEventInitiatorIdAndEventIdPagedTest() {
+        List<Request> requests = requestRepository.findRequestsByEventInitiatorIdAndEventId(4L, 8L,
+                PageRequest.of(1, 2, Sort.by("id")));
+
+        assertThat(requests).extracting(Request::getId).containsExactly(7L);
+    }
+
+    @Test
+    void streamRequestsByEventIdTest() {
+        try (Stream<ParticipationRequestDto> requests = requestRepository.streamRequestsByEventId(8L)) {
+            assertThat(requests)
+                    .extracting(ParticipationRequestDto::getId, ParticipationRequestDto::getRequester,
+                            ParticipationRequestDto::getStatus)
+                    .containsExactly(
+                            tuple(5L, 5L, RequestState.REJECTED),
+                            tuple(6L, 1L, RequestState.CONFIRMED),
+                            tuple(7L, 3L, RequestState.CONFIRMED));
+        }
+    }
+
     @Test
     void getConfirmedRequestsTest() {
         Long eventId = 8L;
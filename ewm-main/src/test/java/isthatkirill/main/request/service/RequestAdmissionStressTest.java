@@ -0,0 +1,99 @@
+package isthatkirill.main.request.service;
+
+import isthatkirill.main.error.exception.ForbiddenException;
+import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.repository.EventRepository;
+import isthatkirill.main.request.repository.RequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Kirill Emelyanov
+ */
+
+@Slf4j
+@SpringBootTest
+class RequestAdmissionStressTest {
+
+    private static final int REQUESTERS = 500;
+    private static final int PARTICIPANT_LIMIT = 100;
+    private static final long EVENT_ID = 7L;
+    private static final long FIRST_REQUESTER_ID = 6L;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Test
+    @Sql(value = {"/testdata/drop-table.sql", "/schema.sql", "/testdata/test-events.sql"},
+            statements = {
+                    "UPDATE events SET participant_limit = " + PARTICIPANT_LIMIT + " WHERE id = " + EVENT_ID,
+                    "INSERT INTO users (name, email) " +
+                            "SELECT 'requester' || x, 'requester' || x || '@yandex.ru' FROM SYSTEM_RANGE(1, " + REQUESTERS + ")"
+            })
+    void concurrentRequestsNeverExceedParticipantLimitTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTERS; i++) {
+            long userId = FIRST_REQUESTER_ID + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    requestService.create(userId, EVENT_ID);
+                    admitted.incrementAndGet();
+                } catch (ForbiddenException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        executor.shutdown();
+
+        log.info("Admission --> {} requesters, admitted={}, rejected={}, {} requests/s",
+                REQUESTERS, admitted.get(), rejected.get(), Math.round(REQUESTERS / seconds));
+
+        assertThat(errors).isEmpty();
+        assertThat(admitted.get()).isEqualTo(PARTICIPANT_LIMIT);
+        assertThat(rejected.get()).isEqualTo(REQUESTERS - PARTICIPANT_LIMIT);
+        assertThat(eventRepository.findById(EVENT_ID)).isPresent()
+                .get()
+                .extracting(Event::getConfirmedRequests)
+                .isEqualTo((long) PARTICIPANT_LIMIT);
+        assertThat(requestRepository.getConfirmedRequests(EVENT_ID)).isEqualTo((long) PARTICIPANT_LIMIT);
+    }
+
+}
@@ -2,6 +2,8 @@ package isthatkirill.main.request.service;
 
 import isthatkirill.main.error.exception.EntityNotFoundException;
 import isthatkirill.main.error.exception.ForbiddenException;
+import isthatkirill.main.event.model.Event;
+import isthatkirill.main.event.repository.EventRepository;
 import isthatkirill.main.request.dto.EventRequestStatusUpdateRequestDto;
 import isthatkirill.main.request.dto.EventRequestStatusUpdateResultDto;
 import isthatkirill.main.request.dto.ParticipationRequestDto;
@@ -12,9 +14,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -29,6 +33,9 @@ class RequestServiceImplTest {
     @Autowired
     private RequestService requestService;
 
+    @Autowired
+    private EventRepository eventRepository;
+
     //current requestId = 8 --> test-requests.sql contains previous 7 requests
 
     @Test
@@ -123,7 +130,7 @@ class RequestServiceImplTest {
     void getRequestsByUserIdTest() {
         Long userId = 2L;
 
-        List<ParticipationRequestDto> requests = requestService.getRequestsByUserId(userId);
+        List<ParticipationRequestDto> requests = requestService.getRequestsByUserId(userId, 0, null);
 
         assertThat(requests).hasSize(2)
                 .extracting(ParticipationRequestDto::getId)
@@ -135,7 +142,7 @@ class RequestServiceImplTest {
     void getRequestsByNonExistentUserIdTest() {
         Long userId = Long.MAX_VALUE;
 
-        assertThrows(EntityNotFoundException.class, () -> requestService.getRequestsByUserId(userId));
+        assertThrows(EntityNotFoundException.class, () -> requestService.getRequestsByUserId(userId, 0, null));
     }
 
     @Test
@@ -192,8 +199,8 @@ class RequestServiceImplTest {
     @Test
     @Order(14)
     void processRejectRequestsByInitiatorTest() {
-        Long userId = 1L;
-        Long eventId = 1L;
+        Long userId = 2L;
+        Long eventId = 6L;
         List<Long> ids = List.of(1L, 2L);
 
         EventRequestStatusUpdateRequestDto updateRequest = EventRequestStatusUpdateRequestDto.builder()
@@ -234,8 +241,8 @@ class RequestServiceImplTest {
     @Test
     @Order(16)
     void tryToRejectAlreadyRejectedRequestsByInitiatorTest() {
-        Long userId = 1L;
-        Long eventId = 1L;
+        Long userId = 2L;
+        Long eventId = 6L;
         List<Long> ids = List.of(1L, 2L);
 
         EventRequestStatusUpdateRequestDto updateRequest = EventRequestStatusUpdateRequestDto.builder()
@@ -282,7 +289,7 @@ class RequestServiceImplTest {
         Long userId = 4L;
         Long eventId = 8L;
 
-        List<ParticipationRequestDto> requests = requestService.getRequestsByInitiator(userId, eventId);
+        List<ParticipationRequestDto> requests = requestService.getRequestsByInitiator(userId, eventId, 0, null);
 
         assertThat(requests).hasSize(3)
                 .extracting(ParticipationRequestDto::getId)
@@ -295,8 +302,116 @@ class RequestServiceImplTest {
         Long userId = 5L;
         Long eventId = 10L;
 
-        List<ParticipationRequestDto> requests = requestService.getRequestsByInitiator(userId, eventId);
+        List<ParticipationRequestDto> requests = requestService.getRequestsByInitiator(userId, eventId, 0, null);
 
         assertThat(requests).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    @Order(21)
+    void confirmedRequestsCounterTest() {
+        assertThat(eventRepository.findAllById(List.of(2L, 7L, 8L, 9L)))
+                .extracting(Event::getId, Event::getConfirmedRequests)
+                .containsExactlyInAnyOrder(
+                        tuple(2L, 2L),
+                        tuple(7L, 0L),
+                        tuple(8L, 2L),
+                        tuple(9L, 1L));
+    }
+
+    @Test
+    @Order(22)
+    @Sql(statements = "INSERT INTO users (name, email) VALUES ('sasha', 'sasha@yandex.ru'), ('masha', 'masha@yandex.ru')")
+    void processConfirmRequestsOverLimitByInitiatorTest() {
+        Long userId = 4L;
+        Long eventId = 9L;
+        List<Long> ids = new ArrayList<>();
+        for (Long requesterId : List.of(1L, 2L, 3L, 6L, 7L)) {
+            ids.add(requestService.create(requesterId, eventId).getId());
+        }
+
+        EventRequestStatusUpdateRequestDto updateRequest = EventRequestStatusUpdateRequestDto.builder()
+                .requestIds(ids.subList(0, 4))
+                .status(RequestProcessedState.CONFIRMED)
+                .build();
+
+        EventRequestStatusUpdateResultDto resultDto = requestService.processRequestsByInitiator(updateRequest, userId, eventId);
+
+        assertThat(resultDto.getConfirmedRequests())
+                .extracting(ParticipationRequestDto::getId, ParticipationRequestDto::getStatus)
+                .containsExactly(
+                        tuple(ids.get(0), RequestState.CONFIRMED),
+                        tuple(ids.get(1), RequestState.CONFIRMED),
+                        tuple(ids.get(2), RequestState.CONFIRMED));
+        assertThat(resultDto.getRejectedRequests())
+                .extracting(ParticipationRequestDto::getId, ParticipationRequestDto::getRequester)
+                .containsExactly(tuple(ids.get(3), 6L));
+        assertThat(eventRepository.findById(eventId)).get()
+                .extracting(Event::getConfirmedRequests)
+                .isEqualTo(4L);
+    }
+
+    @Test
+    @Order(23)
+    void processConfirmRequestsOnFullEventByInitiatorTest() {
+        Long userId = 4L;
+        Long eventId = 9L;
+        ParticipationRequestDto pending = requestService.getRequestsByInitiator(userId, eventId, 0, null).stream()
+                .filter(r -> r.getStatus() == RequestState.PENDING)
+                .findFirst()
+                .orElseThrow();
+
+        EventRequestStatusUpdateRequestDto updateRequest = EventRequestStatusUpdateRequestDto.builder()
+                .requestIds(List.of(pending.getId()))
+                .status(RequestProcessedState.CONFIRMED)
+                .build();
+
+        assertThrows(ForbiddenException.class, () -> requestService.processRequestsByInitiator(updateRequest, userId, eventId));
+        assertThat(requestService.getRequestsByInitiator(userId, eventId, 0, null))
+                .filteredOn(r -> r.getId().equals(pending.getId()))
+                .extracting(ParticipationRequestDto::getStatus)
+                .containsExactly(RequestState.PENDING);
+    }
+
+    @Test
+    @Order(24)
+    void getRequestsByUserIdPagedTest() {
+        Long userId = 2L;
+
+        assertThat(requestService.getRequestsByUserId(userId, 0, 1))
+                .extracting(ParticipationRequestDto::getId)
+                .containsExactly(2L);
+        assertThat(requestService.getRequestsByUserId(userId, 1, 1))
+                .extracting(ParticipationRequestDto::getId)
+                .containsExactly(3L);
+    }
+
+    @Test
+    @Order(25)
+    void forEachRequestByInitiatorTest() {
+        Long userId = 4L;
+        Long eventId = 8L;
+        List<ParticipationRequestDto> requests = new ArrayList<>();
+
+        requestService.forEachRequestByInitiator(userId, eventId, requests::add);
+
+        assertThat(requests)
+                .extracting(ParticipationRequestDto::getId, ParticipationRequestDto::getStatus)
+                .containsExactly(
+                        tuple(5L, RequestState.REJECTED),
+                        tuple(6L, RequestState.CONFIRMED),
+                        tuple(7L, RequestState.CONFIRMED));
+    }
+
+    @Test
+    @Order(26)
+    void forEachRequestByNonInitiatorTest() {
+        Long userId = 1L;
+        Long eventId = 8L;
+
+        assertThrows(EntityNotFoundException.class, () -> requestService.forEachRequestByInitiator(userId, eventId,
+                request -> {
+                }));
+    }
+
+}
@@ -0,0 +1,5 @@
+-- Test reset script: recreates the schema from the migrations, keep in step with db/migration/common and db/migration/h2
+RUNSCRIPT FROM 'classpath:db/migration/common/V1__init.sql';
+RUNSCRIPT FROM 'classpath:db/migration/common/V2__events_counters.sql';
+RUNSCRIPT FROM 'classpath:db/migration/common/V3__locations_cells.sql';
+RUNSCRIPT FROM 'classpath:db/migration/h2/V4__requests_indexes.sql';
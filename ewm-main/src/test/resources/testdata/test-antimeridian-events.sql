@@ -0,0 +1,11 @@
+INSERT INTO locations (lat, lon) VALUES
+(0.00, 179.95), -- id=8
+(0.00, -179.95), -- id=9, ~11 km across the antimeridian
+(0.00, 178.50); -- id=10, ~161 km
+
+INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, request_moderation, published_on, title, state, location_id, initiator_id, category_id) VALUES
+('Fiji dive', NOW(), 'Fiji dive', NOW() + INTERVAL '2' DAY, false, 0, false, NOW(), 'Fiji dive title', 'PUBLISHED', 9, 2, 1), -- id=13
+('Taveuni hike', NOW(), 'Taveuni hike', NOW() + INTERVAL '3' DAY, false, 0, false, NOW(), 'Taveuni hike title', 'PUBLISHED', 8, 3, 2), -- id=14
+('Suva market', NOW(), 'Suva market', NOW() + INTERVAL '1' DAY, false, 0, false, NOW(), 'Suva market title', 'PUBLISHED', 10, 4, 3); -- id=15
+
+UPDATE locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + LEAST(3599, FLOOR((lon + 180) / 0.1));
@@ -33,3 +33,5 @@ INSERT INTO events (annotation, created_on, description, event_date, paid, parti
 ('Spring Security', NOW(), 'Spring Security conference', NOW() + INTERVAL '7' DAY, true, 4, true, null, 'Spring Security conference title', 'PENDING', 7, 5, 4), -- id=10
 ('Spring Boot', NOW(), 'Spring Boot conference', NOW() + INTERVAL '8' DAY, true, 4, true, null, 'Spring Boot conference title', 'PENDING', 7, 5, 4), -- id=11
 ('Spring MVC', NOW(), 'Spring MVC conference', NOW() + INTERVAL '8' DAY, true, 1000, true, null, 'Spring MVC conference title', 'CANCELED', 7, 5, 4); -- id=12
+
+UPDATE locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + LEAST(3599, FLOOR((lon + 180) / 0.1));
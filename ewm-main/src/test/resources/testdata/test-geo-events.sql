@@ -0,0 +1,12 @@
+INSERT INTO locations (lat, lon) VALUES
+(55.76, 37.62), -- id=8, ~1 km from (55.75, 37.62)
+(55.80, 37.70), -- id=9, ~7 km
+(55.75, 38.50); -- id=10, ~55 km
+
+INSERT INTO events (annotation, created_on, description, event_date, paid, participant_limit, request_moderation, published_on, title, state, location_id, initiator_id, category_id) VALUES
+('Moscow meetup', NOW(), 'Moscow meetup', NOW() + INTERVAL '2' DAY, false, 0, false, NOW(), 'Moscow meetup title', 'PUBLISHED', 9, 2, 1), -- id=13
+('Kremlin tour', NOW(), 'Kremlin tour', NOW() + INTERVAL '9' DAY, false, 0, false, NOW(), 'Kremlin tour title', 'PUBLISHED', 8, 3, 2), -- id=14
+('Zvenigorod hike', NOW(), 'Zvenigorod hike', NOW() + INTERVAL '1' DAY, false, 0, false, NOW(), 'Zvenigorod hike title', 'PUBLISHED', 10, 4, 3), -- id=15
+('Red Square walk', NOW(), 'Red Square walk', NOW() + INTERVAL '3' DAY, false, 0, false, null, 'Red Square walk title', 'PENDING', 8, 5, 4); -- id=16
+
+UPDATE locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + LEAST(3599, FLOOR((lon + 180) / 0.1));
@@ -1,4 +1,6 @@
 INSERT INTO locations (lat, lon) VALUES
 (10.10, 20.20),
 (11.11, 21.21),
-(12.12, 22.22);
\ No newline at end of file
+(12.12, 22.22);
+
+UPDATE locations SET cell = LEAST(1799, FLOOR((lat + 90) / 0.1)) * 3600 + LEAST(3599, FLOOR((lon + 180) / 0.1));
@@ -5,4 +5,8 @@ insert into requests (requester_id, event_id, status, created) values
 (3, 2, 'CONFIRMED', NOW()), -- id=4
 (5, 8, 'REJECTED', NOW()), -- id=5
 (1, 8, 'CONFIRMED', NOW()), -- id=6
-(3, 8, 'CONFIRMED', NOW()); -- id=7
\ No newline at end of file
+(3, 8, 'CONFIRMED', NOW()); -- id=7
+
+UPDATE events SET confirmed_requests = (
+    SELECT count(*) FROM requests r WHERE r.event_id = events.id AND r.status = 'CONFIRMED'
+);
@@ -0,0 +1,219 @@
+package isthatkirill.stats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import isthatkirill.stats.dto.EndpointHitDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class HitBuffer implements MeterBinder {
+
+    private final StatClient statClient;
+    private final BlockingDeque<EndpointHitDto> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long blockTimeoutMs;
+    private final HitOverflowPolicy overflowPolicy;
+    private final HitSpillFile spillFile;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stat-hit-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+
+    public HitBuffer(StatClient statClient,
+                     @Value("${stat-client.hits.capacity:10000}") int capacity,
+                     @Value("${stat-client.hits.batch-size:500}") int batchSize,
+                     @Value("${stat-client.hits.flush-interval-ms:1000}") long flushIntervalMs,
+                     @Value("${stat-client.hits.overflow-policy:DROP_OLDEST}") HitOverflowPolicy overflowPolicy,
+                     @Value("${stat-client.hits.block-timeout-ms:50}") long blockTimeoutMs,
+                     @Value("${stat-client.hits.spill-file:${java.io.tmpdir}/stat-hits.ndjson}") Path spillPath) {
+        this.statClient = statClient;
+        this.queue = new LinkedBlockingDeque<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.spillFile = new HitSpillFile(spillPath, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Hit buffer started --> batchSize={}, flushIntervalMs={}, overflowPolicy={}",
+                batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        if (flusher.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS)) {
+            flush();
+        }
+    }
+
+    public void add(EndpointHitDto hit) {
+        if (!offer(hit)) {
+            return;
+        }
+        enqueued.incrementAndGet();
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true) && !flusher.isShutdown()) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    public synchronized void flush() {
+        flushRequested.set(false);
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!send(batch)) {
+                requeue(batch);
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+        if (overflowPolicy == HitOverflowPolicy.SPILL && !spillFile.isEmpty()) {
+            replaySpill();
+        }
+    }
+
+    /**
+     * Distinct IPs among the queued hits on {@code uri}, so a reader can count its own view before it is flushed.
+     */
+    public long countQueuedIps(String uri) {
+        return queue.stream()
+                .filter(hit -> uri.equals(hit.getUri()))
+                .map(EndpointHitDto::getIp)
+                .distinct()
+                .count();
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("stat.hits.enqueued", enqueued, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stat.hits.flushed", flushed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stat.hits.dropped", dropped, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stat.hits.spilled", spilled, AtomicLong::get).register(registry);
+        Gauge.builder("stat.hits.queued", queue, BlockingDeque::size).register(registry);
+    }
+
+    private boolean offer(EndpointHitDto hit) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    if (queue.offer(hit, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                dropped.incrementAndGet();
+                return false;
+            case SPILL:
+                if (queue.offer(hit)) {
+                    return true;
+                }
+                spill(hit);
+                return false;
+            default:
+                while (!queue.offer(hit)) {
+                    if (queue.pollFirst() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                return true;
+        }
+    }
+
+    private boolean send(List<EndpointHitDto> batch) {
+        try {
+            statClient.addHits(batch);
+            flushed.addAndGet(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} hits to stat server: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void requeue(List<EndpointHitDto> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (!queue.offerFirst(batch.get(i))) {
+                if (overflowPolicy == HitOverflowPolicy.SPILL) {
+                    spill(batch.get(i));
+                } else {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void spill(EndpointHitDto hit) {
+        try {
+            spillFile.append(hit);
+            spilled.incrementAndGet();
+        } catch (IOException e) {
+            log.warn("Failed to spill hit to disk: {}", e.getMessage());
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void replaySpill() {
+        try {
+            long replayed = spillFile.replay(batchSize, batch -> {
+                statClient.addHits(batch);
+                flushed.addAndGet(batch.size());
+            });
+            log.info("Replayed {} spilled hits", replayed);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to replay spilled hits: {}", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,5 @@
+package isthatkirill.stats;
+
+public enum HitOverflowPolicy {
+    DROP_OLDEST, BLOCK, SPILL
+}
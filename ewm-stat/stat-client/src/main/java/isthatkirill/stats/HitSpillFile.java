@@ -0,0 +1,101 @@
+package isthatkirill.stats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import isthatkirill.stats.dto.EndpointHitDto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class HitSpillFile {
+
+    private final Path path;
+    private final Path replayPath;
+    private final ObjectMapper objectMapper;
+    private final Object lock = new Object();
+
+    public HitSpillFile(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.replayPath = path.resolveSibling(path.getFileName() + ".replay");
+        this.objectMapper = objectMapper;
+    }
+
+    public void append(EndpointHitDto hit) throws IOException {
+        String line = objectMapper.writeValueAsString(hit) + System.lineSeparator();
+        synchronized (lock) {
+            Files.writeString(path, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    public boolean isEmpty() {
+        return Files.notExists(replayPath) && Files.notExists(path);
+    }
+
+    public long replay(int batchSize, Consumer<List<EndpointHitDto>> sender) throws IOException {
+        synchronized (lock) {
+            if (Files.notExists(replayPath)) {
+                if (Files.notExists(path)) {
+                    return 0;
+                }
+                Files.move(path, replayPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        long replayed = 0;
+        long linesSent = 0;
+        long lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+            List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(objectMapper.readValue(line, EndpointHitDto.class));
+                if (batch.size() == batchSize) {
+                    sender.accept(batch);
+                    replayed += batch.size();
+                    linesSent = lineNumber;
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                sender.accept(batch);
+                replayed += batch.size();
+            }
+        } catch (RuntimeException e) {
+            keepUnsent(linesSent);
+            throw e;
+        }
+
+        Files.delete(replayPath);
+        return replayed;
+    }
+
+    private void keepUnsent(long linesSent) throws IOException {
+        Path tmp = replayPath.resolveSibling(replayPath.getFileName() + ".tmp");
+        try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                if (++lineNumber > linesSent) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tmp, replayPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+}
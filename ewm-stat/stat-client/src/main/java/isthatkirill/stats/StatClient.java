@@ -1,6 +1,8 @@
 package isthatkirill.stats;
 
 import isthatkirill.stats.dto.EndpointHitDto;
+import isthatkirill.stats.dto.StatsQueryDto;
+import isthatkirill.stats.dto.StatsWindowDto;
 import isthatkirill.stats.dto.ViewStatsDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.ParameterizedTypeReference;
@@ -15,7 +17,10 @@ import reactor.core.publisher.Mono;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static isthatkirill.stats.util.Formats.DATE_PATTERN;
 
@@ -39,6 +44,18 @@ public class StatClient {
                 .block();
     }
 
+    public void addHits(List<EndpointHitDto> endpointHitDtos) {
+        webclient.post()
+                .uri("/hit/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .acceptCharset(StandardCharsets.UTF_8)
+                .body(BodyInserters.fromValue(endpointHitDtos))
+                .exchangeToMono(clientResponse -> clientResponse.statusCode().equals(HttpStatus.CREATED) ?
+                        clientResponse.releaseBody() :
+                        clientResponse.createException().flatMap(Mono::error))
+                .block();
+    }
+
     public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
         return webclient.get()
                 .uri(uriBuilder -> uriBuilder
@@ -60,4 +77,64 @@ public class StatClient {
                 .block();
     }
 
+    public Map<String, Long> queryStats(StatsQueryDto query) {
+        return webclient.post()
+                .uri("/stats/query")
+                .contentType(MediaType.APPLICATION_JSON)
+                .acceptCharset(StandardCharsets.UTF_8)
+                .body(BodyInserters.fromValue(query))
+                .exchangeToMono(clientResponse -> {
+                    if (clientResponse.statusCode().is2xxSuccessful()) {
+                        return clientResponse.bodyToMono(new ParameterizedTypeReference<Map<String, Long>>() {
+                        });
+                    } else {
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(errorMessage -> Mono.error(new RuntimeException(errorMessage)));
+                    }
+                })
+                .block();
+    }
+
+    /**
+     * Returns hits per id for the URIs {@code uriPrefix + id}, each counted from its own start up to {@code end}.
+     */
+    public Map<Long, Long> getHits(Map<Long, LocalDateTime> starts, LocalDateTime end, String uriPrefix,
+                                   boolean unique) {
+        return getHits(starts, null, end, uriPrefix, unique);
+    }
+
+    /**
+     * Same as {@link #getHits(Map, LocalDateTime, String, boolean)} restricted to what was added after {@code after}.
+     */
+    public Map<Long, Long> getHitsAfter(Map<Long, LocalDateTime> starts, LocalDateTime after, LocalDateTime end,
+                                        String uriPrefix, boolean unique) {
+        return getHits(starts, after, end, uriPrefix, unique);
+    }
+
+    private Map<Long, Long> getHits(Map<Long, LocalDateTime> starts, LocalDateTime after, LocalDateTime end,
+                                    String uriPrefix, boolean unique) {
+        List<StatsWindowDto> windows = starts.entrySet().stream()
+                .map(entry -> StatsWindowDto.builder().id(entry.getKey()).start(entry.getValue()).build())
+                .collect(Collectors.toList());
+        LocalDateTime start = starts.values().stream()
+                .min(LocalDateTime::compareTo)
+                .orElse(end);
+        return toHitsById(queryStats(StatsQueryDto.builder()
+                .start(start)
+                .after(after)
+                .end(end)
+                .uriPrefix(uriPrefix)
+                .windows(windows)
+                .unique(unique)
+                .build()));
+    }
+
+    private Map<Long, Long> toHitsById(Map<String, Long> hits) {
+        Map<Long, Long> hitsById = new HashMap<>();
+        if (hits != null) {
+            hits.forEach((id, count) -> hitsById.put(Long.parseLong(id), count));
+        }
+        return hitsById;
+    }
+
 }
@@ -0,0 +1,160 @@
+package ru.practicum.stats;
+
+import isthatkirill.stats.HitBuffer;
+import isthatkirill.stats.HitOverflowPolicy;
+import isthatkirill.stats.StatClient;
+import isthatkirill.stats.WebClientConfig;
+import isthatkirill.stats.dto.EndpointHitDto;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.verify.VerificationTimes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+@SpringBootTest(classes = {StatClient.class, WebClientConfig.class})
+class HitBufferTest {
+
+    @Autowired
+    private StatClient statClient;
+
+    @TempDir
+    Path tempDir;
+
+    private ClientAndServer mockServer;
+    private final HttpRequest hitRequest = request()
+            .withMethod("POST")
+            .withPath("/hit/batch");
+
+    @BeforeEach
+    void beforeEach() {
+        mockServer = startClientAndServer(7070);
+    }
+
+    @AfterEach
+    void afterEach() {
+        mockServer.stop();
+    }
+
+    @Test
+    void flushSendsAllQueuedHitsTest() {
+        mockServer.when(hitRequest).respond(response().withStatusCode(201));
+        HitBuffer hitBuffer = buildBuffer(10, HitOverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 5; i++) {
+            hitBuffer.add(buildHit(i));
+        }
+        hitBuffer.flush();
+
+        mockServer.verify(hitRequest, VerificationTimes.exactly(1));
+        assertThat(hitBuffer.getEnqueued()).isEqualTo(5);
+        assertThat(hitBuffer.getFlushed()).isEqualTo(5);
+        assertThat(hitBuffer.getDropped()).isZero();
+        assertThat(hitBuffer.getQueued()).isZero();
+    }
+
+    @Test
+    void dropOldestWhenQueueIsFullTest() {
+        HitBuffer hitBuffer = buildBuffer(2, HitOverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 3; i++) {
+            hitBuffer.add(buildHit(i));
+        }
+
+        assertThat(hitBuffer.getEnqueued()).isEqualTo(3);
+        assertThat(hitBuffer.getDropped()).isEqualTo(1);
+        assertThat(hitBuffer.getQueued()).isEqualTo(2);
+    }
+
+    @Test
+    void blockTimesOutAndDropsWhenQueueIsFullTest() {
+        HitBuffer hitBuffer = buildBuffer(2, HitOverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 3; i++) {
+            hitBuffer.add(buildHit(i));
+        }
+
+        assertThat(hitBuffer.getEnqueued()).isEqualTo(2);
+        assertThat(hitBuffer.getDropped()).isEqualTo(1);
+        assertThat(hitBuffer.getQueued()).isEqualTo(2);
+    }
+
+    @Test
+    void spilledHitsAreReplayedOnFlushTest() {
+        mockServer.when(hitRequest).respond(response().withStatusCode(201));
+        HitBuffer hitBuffer = buildBuffer(2, HitOverflowPolicy.SPILL);
+
+        for (int i = 0; i < 5; i++) {
+            hitBuffer.add(buildHit(i));
+        }
+
+        assertThat(hitBuffer.getEnqueued()).isEqualTo(2);
+        assertThat(hitBuffer.getSpilled()).isEqualTo(3);
+
+        hitBuffer.flush();
+
+        mockServer.verify(hitRequest, VerificationTimes.exactly(2));
+        assertThat(hitBuffer.getFlushed()).isEqualTo(5);
+        assertThat(hitBuffer.getDropped()).isZero();
+    }
+
+    @Test
+    @SneakyThrows
+    void failedFlushKeepsHitsQueuedTest() {
+        mockServer.when(hitRequest).respond(response().withStatusCode(500));
+        HitBuffer hitBuffer = buildBuffer(10, HitOverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 3; i++) {
+            hitBuffer.add(buildHit(i));
+        }
+        hitBuffer.flush();
+
+        assertThat(hitBuffer.getFlushed()).isZero();
+        assertThat(hitBuffer.getQueued()).isEqualTo(3);
+    }
+
+    @Test
+    void countQueuedIpsCountsDistinctIpsPerUriTest() {
+        HitBuffer hitBuffer = buildBuffer(10, HitOverflowPolicy.DROP_OLDEST);
+
+        hitBuffer.add(buildHit(1));
+        hitBuffer.add(buildHit(1));
+        hitBuffer.add(EndpointHitDto.builder()
+                .uri("/events/1")
+                .app("app")
+                .ip("2.2.2.2")
+                .timestamp(LocalDateTime.now().withNano(0))
+                .build());
+        hitBuffer.add(buildHit(2));
+
+        assertThat(hitBuffer.countQueuedIps("/events/1")).isEqualTo(2);
+        assertThat(hitBuffer.countQueuedIps("/events/3")).isZero();
+    }
+
+    private HitBuffer buildBuffer(int capacity, HitOverflowPolicy policy) {
+        return new HitBuffer(statClient, capacity, 100, 60_000, policy, 10,
+                tempDir.resolve("hits.ndjson"));
+    }
+
+    private EndpointHitDto buildHit(int i) {
+        return EndpointHitDto.builder()
+                .uri("/events/" + i)
+                .app("app")
+                .ip("1.1.1.1")
+                .timestamp(LocalDateTime.now().withNano(0))
+                .build();
+    }
+
+}
@@ -17,6 +17,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 import static isthatkirill.stats.util.Formats.DATE_PATTERN;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -106,4 +107,26 @@ class StatClientTest {
                 .containsExactly("app");
     }
 
-}
\ No newline at end of file
+    @Test
+    @SneakyThrows
+    void getHitsViaClientTest() {
+        mockServer
+                .when(
+                        request()
+                                .withMethod("POST")
+                                .withPath("/stats/query")
+                )
+                .respond(
+                        response()
+                                .withContentType(MediaType.APPLICATION_JSON)
+                                .withBody(objectMapper.writeValueAsString(Map.of("1", 3L)))
+                                .withStatusCode(200)
+                );
+
+        Map<Long, Long> hits = statClient.getHits(Map.of(1L, LocalDateTime.now().minusDays(1),
+                2L, LocalDateTime.now().minusHours(1)), LocalDateTime.now(), "/events/", true);
+
+        assertThat(hits).containsExactlyEntriesOf(Map.of(1L, 3L));
+    }
+
+}
@@ -0,0 +1,57 @@
+package isthatkirill.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import isthatkirill.stats.util.Formats;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of {@code POST /stats/query}. URIs are given either as a list or as a common prefix with numeric ids,
+ * e.g. {@code /events/} and {@code [1, 2]}. The response maps each URI, or each id, to its hits summed over apps.
+ * <p>
+ * Instead of uris or ids, {@code windows} may give every URI its own start, so that each one is counted from
+ * the later of {@code start} and its own start rather than from one window shared by all of them.
+ */
+@Data
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StatsQueryDto {
+
+    @NotNull(message = "Start cannot be null")
+    @JsonFormat(pattern = Formats.DATE_PATTERN)
+    LocalDateTime start;
+
+    @NotNull(message = "End cannot be null")
+    @JsonFormat(pattern = Formats.DATE_PATTERN)
+    LocalDateTime end;
+
+    @JsonFormat(pattern = Formats.DATE_PATTERN)
+    LocalDateTime after;
+
+    @Size(max = 10000, message = "No more than 10000 uris can be queried at once")
+    List<String> uris;
+
+    @Size(max = 255, message = "Uri prefix length cannot be more than 255")
+    String uriPrefix;
+
+    @Size(max = 10000, message = "No more than 10000 ids can be queried at once")
+    List<Long> ids;
+
+    @Valid
+    @Size(max = 10000, message = "No more than 10000 windows can be queried at once")
+    List<StatsWindowDto> windows;
+
+    boolean unique;
+
+    String precision;
+
+}
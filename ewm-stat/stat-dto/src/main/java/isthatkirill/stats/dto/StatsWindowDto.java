@@ -0,0 +1,33 @@
+package isthatkirill.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import isthatkirill.stats.util.Formats;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+
+/**
+ * One URI of a {@link StatsQueryDto} counted from its own start, given by {@code uri} or by {@code id}
+ * when the query has a uri prefix.
+ */
+@Data
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StatsWindowDto {
+
+    @Size(max = 255, message = "Uri length cannot be more than 255")
+    String uri;
+
+    Long id;
+
+    @NotNull(message = "Window start cannot be null")
+    @JsonFormat(pattern = Formats.DATE_PATTERN)
+    LocalDateTime start;
+
+}
@@ -1,7 +1,9 @@
 package isthatkirill.stats.controller;
 
 import isthatkirill.stats.dto.EndpointHitDto;
+import isthatkirill.stats.dto.StatsQueryDto;
 import isthatkirill.stats.dto.ViewStatsDto;
+import isthatkirill.stats.model.StatsPrecision;
 import isthatkirill.stats.service.StatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Validated
 @RestController
@@ -26,12 +29,28 @@ public class StatsController {
         service.addHit(endpointHitDto);
     }
 
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("/hit/batch")
+    public void addHits(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        service.addHits(endpointHitDtos);
+    }
+
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                        @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                        @RequestParam(value = "uris", required = false) List<String> uris,
-                                       @RequestParam(value = "unique", defaultValue = "false", required = false) boolean unique) {
-        return service.getStats(start, end, uris, unique);
+                                       @RequestParam(value = "unique", defaultValue = "false", required = false) boolean unique,
+                                       @RequestParam(value = "precision", defaultValue = "exact", required = false) String precision,
+                                       @RequestParam(value = "after", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime after) {
+        if (after != null) {
+            return service.getStatsAfter(start, after, end, uris, unique);
+        }
+        return service.getStats(start, end, uris, unique, StatsPrecision.from(precision));
+    }
+
+    @PostMapping("/stats/query")
+    public Map<String, Long> queryStats(@Valid @RequestBody StatsQueryDto query) {
+        return service.queryStats(query);
     }
 
 }
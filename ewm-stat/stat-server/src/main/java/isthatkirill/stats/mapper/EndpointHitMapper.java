@@ -5,10 +5,14 @@ import isthatkirill.stats.model.EndpointHit;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface EndpointHitMapper {
 
     @Mapping(target = "id", ignore = true)
     EndpointHit toEndpointHit(EndpointHitDto endpointHitDto);
 
+    List<EndpointHit> toEndpointHit(List<EndpointHitDto> endpointHitDtos);
+
 }
@@ -0,0 +1,31 @@
+package isthatkirill.stats.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Range partition of {@code endpoint_hits} holding hits created in {@code [from, to)}.
+ * A {@code null} bound is open, as for the partition holding the hits stored before partitioning.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class HitPartition {
+
+    String name;
+    LocalDateTime from;
+    LocalDateTime to;
+
+    public boolean covers(LocalDateTime timestamp) {
+        return (from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to));
+    }
+
+}
@@ -0,0 +1,37 @@
+package isthatkirill.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Length of one {@code endpoint_hits} range partition.
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public enum PartitionInterval {
+
+    DAY(Period.ofDays(1)),
+    MONTH(Period.ofMonths(1));
+
+    Period length;
+
+    public LocalDateTime startOf(LocalDateTime timestamp) {
+        LocalDateTime day = timestamp.truncatedTo(ChronoUnit.DAYS);
+        return this == MONTH ? day.withDayOfMonth(1) : day;
+    }
+
+    /**
+     * First interval boundary strictly after {@code timestamp}.
+     */
+    public LocalDateTime nextBoundary(LocalDateTime timestamp) {
+        return startOf(timestamp).plus(length);
+    }
+
+}
@@ -0,0 +1,31 @@
+package isthatkirill.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public enum RollupGranularity {
+
+    HOUR("endpoint_hits_hourly", ChronoUnit.HOURS),
+    DAY("endpoint_hits_daily", ChronoUnit.DAYS);
+
+    String table;
+    ChronoUnit unit;
+
+    public LocalDateTime bucketOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public LocalDateTime nextBoundary(LocalDateTime timestamp) {
+        LocalDateTime bucket = bucketOf(timestamp);
+        return bucket.equals(timestamp) ? bucket : bucket.plus(1, unit);
+    }
+
+}
@@ -0,0 +1,16 @@
+package isthatkirill.stats.model;
+
+public enum StatsPrecision {
+
+    EXACT, APPROXIMATE;
+
+    public static StatsPrecision from(String precision) {
+        for (StatsPrecision value : values()) {
+            if (value.name().equalsIgnoreCase(precision)) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Unknown precision: " + precision);
+    }
+
+}
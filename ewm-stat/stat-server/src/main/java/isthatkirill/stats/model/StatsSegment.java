@@ -0,0 +1,38 @@
+package isthatkirill.stats.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Part of a {@code /stats} interval answered either from raw hits or from one rollup granularity.
+ * Rollup segments are always half-open and bucket-aligned.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StatsSegment {
+
+    RollupGranularity granularity;
+    LocalDateTime from;
+    LocalDateTime to;
+    boolean toInclusive;
+
+    public static StatsSegment raw(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+        return new StatsSegment(null, from, to, toInclusive);
+    }
+
+    public static StatsSegment rollup(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        return new StatsSegment(granularity, from, to, false);
+    }
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+
+}
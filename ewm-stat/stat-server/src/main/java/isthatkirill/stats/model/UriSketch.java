@@ -0,0 +1,18 @@
+package isthatkirill.stats.model;
+
+import isthatkirill.stats.util.HyperLogLog;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UriSketch {
+
+    String app;
+    String uri;
+    HyperLogLog sketch;
+
+}
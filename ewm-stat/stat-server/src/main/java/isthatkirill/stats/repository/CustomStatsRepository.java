@@ -0,0 +1,60 @@
+package isthatkirill.stats.repository;
+
+import isthatkirill.stats.dto.ViewStatsDto;
+import isthatkirill.stats.model.EndpointHit;
+import isthatkirill.stats.model.HitPartition;
+import isthatkirill.stats.model.RollupGranularity;
+import isthatkirill.stats.model.StatsSegment;
+import isthatkirill.stats.model.UriSketch;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface CustomStatsRepository {
+
+    void saveAllInBatch(List<EndpointHit> hits);
+
+    void addToRollups(List<EndpointHit> hits);
+
+    List<ViewStatsDto> getStats(List<StatsSegment> segments, List<String> uris);
+
+    List<UriSketch> getIpSketches(List<StatsSegment> segments, List<String> uris);
+
+    /**
+     * Counts only hits after {@code after}; with {@code unique} only IPs not seen in {@code [start, after]}.
+     */
+    List<ViewStatsDto> getStatsAfter(LocalDateTime start, LocalDateTime after, LocalDateTime end,
+                                     List<String> uris, boolean unique);
+
+    /**
+     * Counts every URI from its own start, in {@code [start, end]} or, with {@code after}, like {@link #getStatsAfter}.
+     */
+    List<ViewStatsDto> getStatsForWindows(Map<String, LocalDateTime> starts, LocalDateTime after, LocalDateTime end,
+                                          boolean unique);
+
+    int fillMissingSketches(RollupGranularity granularity, int limit);
+
+    /**
+     * Whether {@code endpoint_hits} is range-partitioned, which is only the case on PostgreSQL.
+     */
+    boolean isHitsPartitioned();
+
+    /**
+     * Range partitions of {@code endpoint_hits} ordered by lower bound.
+     */
+    List<HitPartition> getHitPartitions();
+
+    /**
+     * Creates the partition detached and attaches it, which leaves {@code endpoint_hits} open to reads and writes.
+     */
+    void createHitPartition(HitPartition partition);
+
+    /**
+     * Detaches the partition concurrently, which needs PostgreSQL 14 and must not run inside a transaction.
+     */
+    void detachHitPartition(String name);
+
+    void dropHitPartition(String name);
+
+}
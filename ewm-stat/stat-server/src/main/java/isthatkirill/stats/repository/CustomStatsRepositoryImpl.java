@@ -0,0 +1,426 @@
+package isthatkirill.stats.repository;
+
+import isthatkirill.stats.dto.ViewStatsDto;
+import isthatkirill.stats.model.EndpointHit;
+import isthatkirill.stats.model.HitPartition;
+import isthatkirill.stats.model.RollupGranularity;
+import isthatkirill.stats.model.StatsSegment;
+import isthatkirill.stats.model.UriSketch;
+import isthatkirill.stats.util.HyperLogLog;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class CustomStatsRepositoryImpl implements CustomStatsRepository {
+
+    private static final String INSERT_HIT = "INSERT INTO endpoint_hits (app, uri, ip, created) VALUES (?, ?, ?, ?)";
+
+    private static final String UPSERT_ROLLUP_POSTGRESQL = "INSERT INTO %s AS t (app, uri, bucket, hits, ip_sketch) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (app, uri, bucket) DO UPDATE SET hits = t.hits + EXCLUDED.hits";
+
+    private static final String UPSERT_ROLLUP_STANDARD = "MERGE INTO %s AS t " +
+            "USING (SELECT CAST(? AS VARCHAR(255)) AS app, CAST(? AS VARCHAR(255)) AS uri, " +
+            "CAST(? AS TIMESTAMP) AS bucket, CAST(? AS BIGINT) AS hits, CAST(? AS VARBINARY) AS ip_sketch) AS s " +
+            "ON t.app = s.app AND t.uri = s.uri AND t.bucket = s.bucket " +
+            "WHEN MATCHED THEN UPDATE SET hits = t.hits + s.hits " +
+            "WHEN NOT MATCHED THEN INSERT (app, uri, bucket, hits, ip_sketch) " +
+            "VALUES (s.app, s.uri, s.bucket, s.hits, s.ip_sketch)";
+
+    private static final String SELECT_SKETCHES_FOR_KEYS = "SELECT app, uri, bucket, ip_sketch FROM %s " +
+            "WHERE app IN (:apps) AND uri IN (:uris) AND bucket IN (:buckets)";
+
+    private static final String UPDATE_SKETCH = "UPDATE %s SET ip_sketch = ? WHERE app = ? AND uri = ? AND bucket = ?";
+
+    private static final String SELECT_MISSING_SKETCHES = "SELECT app, uri, bucket FROM %s WHERE ip_sketch IS NULL LIMIT ?";
+
+    private static final String LOCK_ROLLUP = "SELECT hits FROM %s WHERE app = ? AND uri = ? AND bucket = ? FOR UPDATE";
+
+    private static final String UPDATE_MISSING_SKETCH = "UPDATE %s SET ip_sketch = ? " +
+            "WHERE app = ? AND uri = ? AND bucket = ? AND ip_sketch IS NULL";
+
+    private static final String RAW_SEGMENT = "SELECT app, uri, COUNT(ip) AS hits FROM endpoint_hits " +
+            "WHERE created >= :from%1$d AND created %2$s :to%1$d";
+
+    private static final String ROLLUP_SEGMENT = "SELECT app, uri, SUM(hits) AS hits FROM %2$s " +
+            "WHERE bucket >= :from%1$d AND bucket < :to%1$d";
+
+    private static final String RAW_IPS = "SELECT DISTINCT app, uri, ip FROM endpoint_hits " +
+            "WHERE created >= :from AND created %s :to";
+
+    private static final String ROLLUP_SKETCHES = "SELECT app, uri, bucket, ip_sketch FROM %s " +
+            "WHERE bucket >= :from AND bucket < :to";
+
+    private static final String BUCKET_IPS = "SELECT DISTINCT ip FROM endpoint_hits " +
+            "WHERE app = ? AND uri = ? AND created >= ? AND created < ?";
+
+    private static final String NEW_HITS = "SELECT e.app, e.uri, COUNT(e.ip) AS hits FROM endpoint_hits e " +
+            "WHERE e.created > :after AND e.created <= :end%s " +
+            "GROUP BY e.app, e.uri " +
+            "ORDER BY COUNT(e.ip) DESC";
+
+    private static final String NEW_UNIQUE_IPS = "SELECT e.app, e.uri, COUNT(DISTINCT e.ip) AS hits FROM endpoint_hits e " +
+            "WHERE e.created > :after AND e.created <= :end%s " +
+            "AND NOT EXISTS (SELECT 1 FROM endpoint_hits p WHERE p.uri = e.uri AND p.ip = e.ip AND p.app = e.app " +
+            "AND p.created >= :start AND p.created <= :after) " +
+            "GROUP BY e.app, e.uri " +
+            "ORDER BY COUNT(DISTINCT e.ip) DESC";
+
+    private static final String WINDOW_HITS = "SELECT e.app, e.uri, COUNT(%2$se.ip) AS hits FROM endpoint_hits e " +
+            "WHERE e.uri = :uri%1$d AND e.created >= :start%1$d AND e.created <= :end " +
+            "GROUP BY e.app, e.uri";
+
+    private static final String WINDOW_NEW_HITS = "SELECT e.app, e.uri, COUNT(%2$se.ip) AS hits FROM endpoint_hits e " +
+            "WHERE e.uri = :uri%1$d AND e.created >= :start%1$d AND e.created > :after AND e.created <= :end%3$s " +
+            "GROUP BY e.app, e.uri";
+
+    private static final String WINDOW_SEEN_BEFORE = " AND NOT EXISTS (SELECT 1 FROM endpoint_hits p " +
+            "WHERE p.uri = e.uri AND p.ip = e.ip AND p.app = e.app AND p.created >= :start%1$d AND p.created <= :after)";
+
+    private static final String IS_HITS_PARTITIONED = "SELECT COUNT(*) FROM pg_partitioned_table " +
+            "WHERE partrelid = to_regclass('endpoint_hits')";
+
+    private static final String HIT_PARTITIONS = "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass('endpoint_hits')";
+
+    private static final String CREATE_DETACHED_PARTITION = "CREATE TABLE %s (LIKE endpoint_hits)";
+
+    private static final String ATTACH_PARTITION = "ALTER TABLE endpoint_hits ATTACH PARTITION %s " +
+            "FOR VALUES FROM ('%s') TO ('%s')";
+
+    private static final String IS_DETACH_PENDING = "SELECT COUNT(*) FROM pg_inherits " +
+            "WHERE inhrelid = to_regclass(?) AND inhparent = to_regclass('endpoint_hits') AND inhdetachpending";
+
+    private static final String DETACH_PARTITION = "ALTER TABLE endpoint_hits DETACH PARTITION %s CONCURRENTLY";
+
+    private static final String FINALIZE_DETACH_PARTITION = "ALTER TABLE endpoint_hits DETACH PARTITION %s FINALIZE";
+
+    private static final String DROP_PARTITION = "DROP TABLE %s";
+
+    private static final Pattern RANGE_BOUND = Pattern.compile("FOR VALUES FROM \\((.+)\\) TO \\((.+)\\)");
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("[a-z0-9_]+");
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int WINDOWS_PER_QUERY = 200;
+
+    private static final RowMapper<ViewStatsDto> VIEW_STATS_ROW_MAPPER = (rs, rowNum) ->
+            new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"));
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Value("${stats.hits.jdbc-batch-size:1000}")
+    private int batchSize;
+
+    private volatile Boolean postgresql;
+
+    @Override
+    public void saveAllInBatch(List<EndpointHit> hits) {
+        namedJdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setString(1, hit.getApp());
+            ps.setString(2, hit.getUri());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+
+    @Override
+    public void addToRollups(List<EndpointHit> hits) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            // sorted so that concurrent upserts lock rollup rows in the same order
+            Map<RollupKey, List<String>> ips = new TreeMap<>();
+            for (EndpointHit hit : hits) {
+                ips.computeIfAbsent(new RollupKey(hit.getApp(), hit.getUri(), granularity.bucketOf(hit.getTimestamp())),
+                        key -> new ArrayList<>()).add(hit.getIp());
+            }
+            Map<RollupKey, HyperLogLog> sketches = new HashMap<>();
+            ips.forEach((key, keyIps) -> sketches.put(key, sketchOf(keyIps)));
+
+            String sql = String.format(isPostgreSql() ? UPSERT_ROLLUP_POSTGRESQL : UPSERT_ROLLUP_STANDARD,
+                    granularity.getTable());
+            namedJdbcTemplate.getJdbcTemplate().batchUpdate(sql, new ArrayList<>(ips.entrySet()), batchSize,
+                    (ps, entry) -> {
+                        ps.setString(1, entry.getKey().app);
+                        ps.setString(2, entry.getKey().uri);
+                        ps.setTimestamp(3, Timestamp.valueOf(entry.getKey().bucket));
+                        ps.setLong(4, entry.getValue().size());
+                        ps.setBytes(5, sketches.get(entry.getKey()).toBytes());
+                    });
+            mergeSketches(granularity, sketches);
+        }
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(List<StatsSegment> segments, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", uris);
+            uriFilter = " AND uri IN (:uris)";
+        }
+
+        StringJoiner union = new StringJoiner(" UNION ALL ");
+        for (int i = 0; i < segments.size(); i++) {
+            StatsSegment segment = segments.get(i);
+            params.addValue("from" + i, segment.getFrom());
+            params.addValue("to" + i, segment.getTo());
+            String select = segment.isRaw()
+                    ? String.format(RAW_SEGMENT, i, segment.isToInclusive() ? "<=" : "<")
+                    : String.format(ROLLUP_SEGMENT, i, segment.getGranularity().getTable());
+            union.add(select + uriFilter + " GROUP BY app, uri");
+        }
+
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM (" + union + ") AS s " +
+                "GROUP BY app, uri " +
+                "ORDER BY SUM(hits) DESC";
+        return namedJdbcTemplate.query(sql, params, VIEW_STATS_ROW_MAPPER);
+    }
+
+    @Override
+    public List<UriSketch> getIpSketches(List<StatsSegment> segments, List<String> uris) {
+        Map<List<String>, UriSketch> sketches = new LinkedHashMap<>();
+        String uriFilter = uris == null || uris.isEmpty() ? "" : " AND uri IN (:uris)";
+        for (StatsSegment segment : segments) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("from", segment.getFrom())
+                    .addValue("to", segment.getTo())
+                    .addValue("uris", uris);
+            if (segment.isRaw()) {
+                String sql = String.format(RAW_IPS, segment.isToInclusive() ? "<=" : "<") + uriFilter;
+                namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                        sketchOf(sketches, rs.getString("app"), rs.getString("uri")).add(rs.getString("ip")));
+                continue;
+            }
+
+            List<RollupKey> missing = new ArrayList<>();
+            String sql = String.format(ROLLUP_SKETCHES, segment.getGranularity().getTable()) + uriFilter;
+            namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+                byte[] stored = rs.getBytes("ip_sketch");
+                if (stored == null) {
+                    missing.add(new RollupKey(rs.getString("app"), rs.getString("uri"),
+                            rs.getTimestamp("bucket").toLocalDateTime()));
+                } else {
+                    sketchOf(sketches, rs.getString("app"), rs.getString("uri")).merge(HyperLogLog.fromBytes(stored));
+                }
+            });
+            for (RollupKey key : missing) {
+                HyperLogLog sketch = sketchOf(sketches, key.app, key.uri);
+                addBucketIps(sketch, key, segment.getGranularity());
+            }
+        }
+        return new ArrayList<>(sketches.values());
+    }
+
+    @Override
+    public List<ViewStatsDto> getStatsAfter(LocalDateTime start, LocalDateTime after, LocalDateTime end,
+                                            List<String> uris, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("after", after)
+                .addValue("end", end)
+                .addValue("uris", uris);
+        String uriFilter = uris == null || uris.isEmpty() ? "" : " AND e.uri IN (:uris)";
+        return namedJdbcTemplate.query(String.format(unique ? NEW_UNIQUE_IPS : NEW_HITS, uriFilter), params,
+                VIEW_STATS_ROW_MAPPER);
+    }
+
+    @Override
+    public List<ViewStatsDto> getStatsForWindows(Map<String, LocalDateTime> starts, LocalDateTime after,
+                                                 LocalDateTime end, boolean unique) {
+        List<Map.Entry<String, LocalDateTime>> windows = new ArrayList<>(starts.entrySet());
+        List<ViewStatsDto> stats = new ArrayList<>();
+        // one branch per uri, so that each is a range scan of its own window on (uri, created)
+        for (int from = 0; from < windows.size(); from += WINDOWS_PER_QUERY) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("after", after)
+                    .addValue("end", end);
+            StringJoiner union = new StringJoiner(" UNION ALL ");
+            for (int i = from; i < Math.min(from + WINDOWS_PER_QUERY, windows.size()); i++) {
+                params.addValue("uri" + i, windows.get(i).getKey());
+                params.addValue("start" + i, windows.get(i).getValue());
+                String distinct = unique ? "DISTINCT " : "";
+                union.add(after == null
+                        ? String.format(WINDOW_HITS, i, distinct)
+                        : String.format(WINDOW_NEW_HITS, i, distinct, unique ? String.format(WINDOW_SEEN_BEFORE, i) : ""));
+            }
+            stats.addAll(namedJdbcTemplate.query(union.toString(), params, VIEW_STATS_ROW_MAPPER));
+        }
+        stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return stats;
+    }
+
+    @Override
+    public int fillMissingSketches(RollupGranularity granularity, int limit) {
+        JdbcTemplate jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        String table = granularity.getTable();
+        List<RollupKey> keys = jdbcTemplate.query(String.format(SELECT_MISSING_SKETCHES, table), (rs, rowNum) ->
+                new RollupKey(rs.getString("app"), rs.getString("uri"), rs.getTimestamp("bucket").toLocalDateTime()),
+                limit);
+        for (RollupKey key : keys) {
+            Timestamp bucket = Timestamp.valueOf(key.bucket);
+            jdbcTemplate.queryForList(String.format(LOCK_ROLLUP, table), key.app, key.uri, bucket);
+            HyperLogLog sketch = new HyperLogLog();
+            addBucketIps(sketch, key, granularity);
+            jdbcTemplate.update(String.format(UPDATE_MISSING_SKETCH, table), sketch.toBytes(), key.app, key.uri, bucket);
+        }
+        return keys.size();
+    }
+
+    @Override
+    public boolean isHitsPartitioned() {
+        if (!isPostgreSql()) {
+            return false;
+        }
+        Integer count = namedJdbcTemplate.getJdbcTemplate().queryForObject(IS_HITS_PARTITIONED, Integer.class);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public List<HitPartition> getHitPartitions() {
+        List<HitPartition> partitions = new ArrayList<>();
+        namedJdbcTemplate.getJdbcTemplate().query(HIT_PARTITIONS, (RowCallbackHandler) rs -> {
+            Matcher bound = RANGE_BOUND.matcher(rs.getString("bound"));
+            if (bound.matches()) {
+                partitions.add(new HitPartition(rs.getString("name"), toBound(bound.group(1)), toBound(bound.group(2))));
+            }
+        });
+        partitions.sort(Comparator.comparing(HitPartition::getFrom, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return partitions;
+    }
+
+    @Override
+    public void createHitPartition(HitPartition partition) {
+        JdbcTemplate jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        String name = checkedName(partition.getName());
+        jdbcTemplate.execute(String.format(CREATE_DETACHED_PARTITION, name));
+        jdbcTemplate.execute(String.format(ATTACH_PARTITION, name,
+                BOUND_FORMAT.format(partition.getFrom()), BOUND_FORMAT.format(partition.getTo())));
+    }
+
+    @Override
+    public void detachHitPartition(String name) {
+        JdbcTemplate jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        String checkedName = checkedName(name);
+        Integer pending = jdbcTemplate.queryForObject(IS_DETACH_PENDING, Integer.class, checkedName);
+        // a concurrent detach that was interrupted leaves the partition pending and can only be finalized
+        String detach = pending != null && pending > 0 ? FINALIZE_DETACH_PARTITION : DETACH_PARTITION;
+        jdbcTemplate.execute(String.format(detach, checkedName));
+    }
+
+    @Override
+    public void dropHitPartition(String name) {
+        namedJdbcTemplate.getJdbcTemplate().execute(String.format(DROP_PARTITION, checkedName(name)));
+    }
+
+    private LocalDateTime toBound(String value) {
+        return value.endsWith("VALUE") ? null : Timestamp.valueOf(value.replace("'", "")).toLocalDateTime();
+    }
+
+    private String checkedName(String name) {
+        if (!PARTITION_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid partition name: " + name);
+        }
+        return name;
+    }
+
+    private void mergeSketches(RollupGranularity granularity, Map<RollupKey, HyperLogLog> sketches) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("apps", sketches.keySet().stream().map(key -> key.app).collect(Collectors.toSet()))
+                .addValue("uris", sketches.keySet().stream().map(key -> key.uri).collect(Collectors.toSet()))
+                .addValue("buckets", sketches.keySet().stream()
+                        .map(key -> Timestamp.valueOf(key.bucket)).collect(Collectors.toSet()));
+        List<Object[]> updates = new ArrayList<>();
+        namedJdbcTemplate.query(String.format(SELECT_SKETCHES_FOR_KEYS, granularity.getTable()), params,
+                (RowCallbackHandler) rs -> {
+                    RollupKey key = new RollupKey(rs.getString("app"), rs.getString("uri"),
+                            rs.getTimestamp("bucket").toLocalDateTime());
+                    byte[] stored = rs.getBytes("ip_sketch");
+                    HyperLogLog added = sketches.get(key);
+                    // rows without a sketch predate sketching and are filled from raw hits by the backfill
+                    if (added == null || stored == null) {
+                        return;
+                    }
+                    HyperLogLog merged = HyperLogLog.fromBytes(stored);
+                    merged.merge(added);
+                    byte[] mergedBytes = merged.toBytes();
+                    if (!Arrays.equals(stored, mergedBytes)) {
+                        updates.add(new Object[]{mergedBytes, key.app, key.uri, Timestamp.valueOf(key.bucket)});
+                    }
+                });
+        if (!updates.isEmpty()) {
+            namedJdbcTemplate.getJdbcTemplate().batchUpdate(String.format(UPDATE_SKETCH, granularity.getTable()), updates);
+        }
+    }
+
+    private void addBucketIps(HyperLogLog sketch, RollupKey key, RollupGranularity granularity) {
+        namedJdbcTemplate.getJdbcTemplate().query(BUCKET_IPS, (RowCallbackHandler) rs -> sketch.add(rs.getString("ip")),
+                key.app, key.uri, Timestamp.valueOf(key.bucket),
+                Timestamp.valueOf(key.bucket.plus(1, granularity.getUnit())));
+    }
+
+    private HyperLogLog sketchOf(Map<List<String>, UriSketch> sketches, String app, String uri) {
+        return sketches.computeIfAbsent(List.of(app, uri), key -> new UriSketch(app, uri, new HyperLogLog()))
+                .getSketch();
+    }
+
+    private HyperLogLog sketchOf(List<String> ips) {
+        HyperLogLog sketch = new HyperLogLog();
+        ips.forEach(sketch::add);
+        return sketch;
+    }
+
+    private boolean isPostgreSql() {
+        if (postgresql == null) {
+            postgresql = namedJdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgresql;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class RollupKey implements Comparable<RollupKey> {
+
+        private static final Comparator<RollupKey> ORDER = Comparator
+                .comparing((RollupKey key) -> key.app)
+                .thenComparing(key -> key.uri)
+                .thenComparing(key -> key.bucket);
+
+        private final String app;
+        private final String uri;
+        private final LocalDateTime bucket;
+
+        @Override
+        public int compareTo(RollupKey other) {
+            return ORDER.compare(this, other);
+        }
+
+    }
+
+}
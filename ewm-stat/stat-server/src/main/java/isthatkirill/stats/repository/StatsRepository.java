@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
+public interface StatsRepository extends JpaRepository<EndpointHit, Long>, CustomStatsRepository {
 
     @Query("SELECT new isthatkirill.stats.dto.ViewStatsDto(e.app, e.uri, COUNT(e.ip)) " +
             "FROM EndpointHit as e " +
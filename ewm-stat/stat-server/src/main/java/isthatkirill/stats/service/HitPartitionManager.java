@@ -0,0 +1,164 @@
+package isthatkirill.stats.service;
+
+import isthatkirill.stats.model.HitPartition;
+import isthatkirill.stats.model.PartitionInterval;
+import isthatkirill.stats.repository.StatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the range partitions of {@code endpoint_hits} ahead of incoming hits and applies the retention policy
+ * by detaching, or dropping, whole partitions instead of deleting rows.
+ * Does nothing while the table is not partitioned, as on H2.
+ * There is no default partition, so the range covered by the partitions is kept for ingest to turn away
+ * hits that would have nowhere to land.
+ */
+@Slf4j
+@Component
+public class HitPartitionManager {
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'endpoint_hits_'yyyyMMdd");
+
+    private final StatsRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionInterval interval;
+    private final int premake;
+    private final int retentionDays;
+    private final boolean dropExpired;
+    private final long maintenanceIntervalMs;
+    private final Clock clock;
+    private final ScheduledExecutorService maintainer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hit-partition-maintainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile HitPartition coverage;
+
+    @Autowired
+    public HitPartitionManager(StatsRepository repository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${stats.hits.partitions.interval:DAY}") PartitionInterval interval,
+                               @Value("${stats.hits.partitions.premake:7}") int premake,
+                               @Value("${stats.hits.partitions.retention-days:0}") int retentionDays,
+                               @Value("${stats.hits.partitions.drop-expired:false}") boolean dropExpired,
+                               @Value("${stats.hits.partitions.maintenance-interval-ms:3600000}")
+                               long maintenanceIntervalMs) {
+        this(repository, transactionTemplate, interval, premake, retentionDays, dropExpired, maintenanceIntervalMs,
+                Clock.systemDefaultZone());
+    }
+
+    HitPartitionManager(StatsRepository repository, TransactionTemplate transactionTemplate,
+                        PartitionInterval interval, int premake, int retentionDays, boolean dropExpired,
+                        long maintenanceIntervalMs, Clock clock) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.interval = interval;
+        this.premake = premake;
+        this.retentionDays = retentionDays;
+        this.dropExpired = dropExpired;
+        this.maintenanceIntervalMs = maintenanceIntervalMs;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (maintenanceIntervalMs <= 0) {
+            log.info("Hit partition maintenance is disabled");
+            return;
+        }
+        maintainer.scheduleWithFixedDelay(this::maintainQuietly, 0, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Hit partition maintenance started --> interval={}, premake={}, retentionDays={}, dropExpired={}",
+                interval, premake, retentionDays, dropExpired);
+    }
+
+    @PreDestroy
+    public void stop() {
+        maintainer.shutdownNow();
+    }
+
+    /**
+     * Creates partitions from the end of the last one up to {@code premake} intervals after the current one,
+     * then detaches partitions that ended more than {@code retentionDays} ago, dropping them with {@code dropExpired}.
+     */
+    public synchronized void maintain() {
+        if (!repository.isHitsPartitioned()) {
+            return;
+        }
+        List<HitPartition> partitions = repository.getHitPartitions();
+        LocalDateTime now = LocalDateTime.now(clock);
+        int created = createAhead(partitions, now);
+        int expired = retentionDays > 0 ? expire(partitions, now.minusDays(retentionDays)) : 0;
+        if (created > 0 || expired > 0) {
+            log.info("Hit partitions maintained --> created={}, {}={}", created, dropExpired ? "dropped" : "detached",
+                    expired);
+            partitions = repository.getHitPartitions();
+        }
+        coverage = partitions.isEmpty() ? null : new HitPartition("endpoint_hits", partitions.get(0).getFrom(),
+                partitions.get(partitions.size() - 1).getTo());
+    }
+
+    /**
+     * Whether a hit created at the timestamp has a partition to land in. Everything is accepted until
+     * the partitions have been maintained once, and for good while the table is not partitioned.
+     */
+    public boolean accepts(LocalDateTime timestamp) {
+        HitPartition covered = coverage;
+        return covered == null || timestamp == null || covered.covers(timestamp);
+    }
+
+    private int createAhead(List<HitPartition> partitions, LocalDateTime now) {
+        LocalDateTime horizon = interval.startOf(now);
+        for (int i = 0; i <= premake; i++) {
+            horizon = interval.nextBoundary(horizon);
+        }
+        LocalDateTime from = partitions.isEmpty()
+                ? interval.startOf(now)
+                : partitions.get(partitions.size() - 1).getTo();
+        int created = 0;
+        while (from != null && from.isBefore(horizon)) {
+            HitPartition partition = new HitPartition(NAME_FORMAT.format(from), from, interval.nextBoundary(from));
+            transactionTemplate.executeWithoutResult(status -> repository.createHitPartition(partition));
+            created++;
+            from = partition.getTo();
+        }
+        return created;
+    }
+
+    private int expire(List<HitPartition> partitions, LocalDateTime cutoff) {
+        int expired = 0;
+        for (HitPartition partition : partitions) {
+            if (partition.getTo() == null || partition.getTo().isAfter(cutoff)) {
+                break;
+            }
+            // detached concurrently, so it runs on its own rather than in a transaction of the template
+            repository.detachHitPartition(partition.getName());
+            if (dropExpired) {
+                repository.dropHitPartition(partition.getName());
+            }
+            expired++;
+        }
+        return expired;
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("Failed to maintain hit partitions: {}", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package isthatkirill.stats.service;
+
+import isthatkirill.stats.model.EndpointHit;
+import isthatkirill.stats.repository.StatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds single hits to the rollups in micro-batches off the ingest transaction, so that storing a hit
+ * is a plain insert and concurrent hits of one uri do not queue up on its rollup rows.
+ * A hit is queued once its insert commits; hits still queued when the process dies are missing from the rollups.
+ */
+@Slf4j
+@Component
+public class RollupAggregator {
+
+    private final StatsRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final LinkedBlockingQueue<EndpointHit> queue = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rollup-aggregator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RollupAggregator(StatsRepository repository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${stats.rollups.batch-size:1000}") int batchSize,
+                            @Value("${stats.rollups.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // runs after the commit of the hit, when joining its transaction would no longer write anything
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (flushIntervalMs <= 0) {
+            log.info("Rollup aggregation runs on the ingest thread");
+            return;
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Rollup aggregation started --> interval={}ms, batchSize={}", flushIntervalMs, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        flushQuietly();
+    }
+
+    /**
+     * Queues the hit once the current transaction commits, or right away outside of one.
+     * With no flush interval the queue is flushed on the calling thread.
+     */
+    public void add(EndpointHit hit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(hit);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(hit);
+            }
+        });
+    }
+
+    public synchronized void flush() {
+        List<EndpointHit> batch = drain();
+        while (!batch.isEmpty()) {
+            List<EndpointHit> added = batch;
+            try {
+                transactionTemplate.executeWithoutResult(status -> repository.addToRollups(added));
+            } catch (RuntimeException e) {
+                // the batch is rolled back as a whole, so it is safe to add again
+                queue.addAll(added);
+                throw e;
+            }
+            batch = drain();
+        }
+    }
+
+    private List<EndpointHit> drain() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        queue.drainTo(batch, batchSize);
+        return batch;
+    }
+
+    private void enqueue(EndpointHit hit) {
+        queue.add(hit);
+        if (flushIntervalMs <= 0) {
+            flush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to add {} queued hits to rollups: {}", queue.size(), e.getMessage());
+        }
+    }
+
+}
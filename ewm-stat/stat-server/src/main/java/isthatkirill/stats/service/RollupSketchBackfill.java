@@ -0,0 +1,42 @@
+package isthatkirill.stats.service;
+
+import isthatkirill.stats.model.RollupGranularity;
+import isthatkirill.stats.repository.StatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Builds distinct-IP sketches for rollup buckets created before sketches were stored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RollupSketchBackfill {
+
+    private static final int CHUNK_SIZE = 100;
+
+    private final StatsRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            long filled = 0;
+            int chunk;
+            do {
+                Integer count = transactionTemplate.execute(status ->
+                        repository.fillMissingSketches(granularity, CHUNK_SIZE));
+                chunk = count == null ? 0 : count;
+                filled += chunk;
+            } while (chunk == CHUNK_SIZE);
+            if (filled > 0) {
+                log.info("Rollup sketches backfilled --> granularity={}, buckets={}", granularity, filled);
+            }
+        }
+    }
+
+}
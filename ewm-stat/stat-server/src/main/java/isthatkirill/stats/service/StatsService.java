@@ -1,15 +1,26 @@
 package isthatkirill.stats.service;
 
 import isthatkirill.stats.dto.EndpointHitDto;
+import isthatkirill.stats.dto.StatsQueryDto;
 import isthatkirill.stats.dto.ViewStatsDto;
+import isthatkirill.stats.model.StatsPrecision;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface StatsService {
 
     void addHit(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+    void addHits(List<EndpointHitDto> endpointHitDtos);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                StatsPrecision precision);
+
+    List<ViewStatsDto> getStatsAfter(LocalDateTime start, LocalDateTime after, LocalDateTime end,
+                                     List<String> uris, boolean unique);
+
+    Map<String, Long> queryStats(StatsQueryDto query);
 
 }
@@ -1,8 +1,14 @@
 package isthatkirill.stats.service;
 
 import isthatkirill.stats.dto.EndpointHitDto;
+import isthatkirill.stats.dto.StatsQueryDto;
+import isthatkirill.stats.dto.StatsWindowDto;
 import isthatkirill.stats.dto.ViewStatsDto;
 import isthatkirill.stats.mapper.EndpointHitMapper;
+import isthatkirill.stats.model.EndpointHit;
+import isthatkirill.stats.model.RollupGranularity;
+import isthatkirill.stats.model.StatsPrecision;
+import isthatkirill.stats.model.StatsSegment;
 import isthatkirill.stats.repository.StatsRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,7 +16,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -20,27 +33,164 @@ public class StatsServiceImpl implements StatsService {
 
     private final StatsRepository repository;
     private final EndpointHitMapper mapper;
+    private final HitPartitionManager partitionManager;
+    private final RollupAggregator rollupAggregator;
 
     @Override
     @Transactional
     public void addHit(EndpointHitDto endpointHitDto) {
         log.info("Endpoint hit added --> {}", endpointHitDto);
-        repository.save(mapper.toEndpointHit(endpointHitDto));
+        if (!partitionManager.accepts(endpointHitDto.getTimestamp())) {
+            throw new IllegalStateException("No hit partition covers timestamp " + endpointHitDto.getTimestamp());
+        }
+        EndpointHit endpointHit = repository.save(mapper.toEndpointHit(endpointHitDto));
+        rollupAggregator.add(endpointHit);
+    }
+
+    @Override
+    @Transactional
+    public void addHits(List<EndpointHitDto> endpointHitDtos) {
+        log.info("Endpoint hits batch added --> size={}", endpointHitDtos.size());
+        List<EndpointHit> endpointHits = mapper.toEndpointHit(endpointHitDtos).stream()
+                .filter(hit -> partitionManager.accepts(hit.getTimestamp()))
+                .collect(Collectors.toList());
+        if (endpointHits.size() < endpointHitDtos.size()) {
+            // one hit outside the partitions would fail the whole batch, which the client then sends again
+            log.warn("Endpoint hits outside hit partitions skipped --> size={}",
+                    endpointHitDtos.size() - endpointHits.size());
+        }
+        repository.saveAllInBatch(endpointHits);
+        repository.addToRollups(endpointHits);
     }
 
     @Override
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
-        log.info("Get stats with params --> start={}, end={}, uris={}, unique={}", start, end, uris, unique);
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                       StatsPrecision precision) {
+        log.info("Get stats with params --> start={}, end={}, uris={}, unique={}, precision={}",
+                start, end, uris, unique, precision);
         if (start.isAfter(end)) {
             throw new IllegalStateException("Invalid time interval");
         }
 
+        if (!unique) {
+            return repository.getStats(planSegments(start, end), uris);
+        }
+        if (precision == StatsPrecision.APPROXIMATE) {
+            return repository.getIpSketches(planSegments(start, end), uris).stream()
+                    .map(sketch -> new ViewStatsDto(sketch.getApp(), sketch.getUri(), sketch.getSketch().estimate()))
+                    .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                    .collect(Collectors.toList());
+        }
         if (uris == null || uris.isEmpty()) {
-            return unique ? repository.getStatsUniqueIp(start, end) : repository.getStats(start, end);
+            return repository.getStatsUniqueIp(start, end);
         } else {
-            return unique ? repository.getStatsUniqueIpForUris(start, end, uris) : repository.getStatsForUris(start, end, uris);
+            return repository.getStatsUniqueIpForUris(start, end, uris);
         }
     }
 
+    @Override
+    public List<ViewStatsDto> getStatsAfter(LocalDateTime start, LocalDateTime after, LocalDateTime end,
+                                            List<String> uris, boolean unique) {
+        log.info("Get stats after watermark with params --> start={}, after={}, end={}, uris={}, unique={}",
+                start, after, end, uris, unique);
+        if (start.isAfter(end) || after.isAfter(end)) {
+            throw new IllegalStateException("Invalid time interval");
+        }
+        return repository.getStatsAfter(start, after, end, uris, unique);
+    }
+
+    @Override
+    public Map<String, Long> queryStats(StatsQueryDto query) {
+        String prefix = query.getUriPrefix();
+        boolean byId = prefix != null;
+        if (query.getWindows() != null) {
+            return toHits(queryWindows(query, prefix), prefix);
+        }
+        if (byId != (query.getIds() != null) || (byId && query.getUris() != null)) {
+            throw new IllegalStateException("Either uris or uriPrefix with ids should be given");
+        }
+        List<String> uris = byId
+                ? query.getIds().stream().map(id -> prefix + id).collect(Collectors.toList())
+                : query.getUris();
+        if (uris != null && uris.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<ViewStatsDto> stats = query.getAfter() != null
+                ? getStatsAfter(query.getStart(), query.getAfter(), query.getEnd(), uris, query.isUnique())
+                : getStats(query.getStart(), query.getEnd(), uris, query.isUnique(),
+                query.getPrecision() == null ? StatsPrecision.EXACT : StatsPrecision.from(query.getPrecision()));
+        return toHits(stats, prefix);
+    }
+
+    private List<ViewStatsDto> queryWindows(StatsQueryDto query, String prefix) {
+        if (query.getUris() != null || query.getIds() != null) {
+            throw new IllegalStateException("Windows cannot be combined with uris or ids");
+        }
+        LocalDateTime end = query.getEnd();
+        LocalDateTime after = query.getAfter();
+        if (query.getStart().isAfter(end) || (after != null && after.isAfter(end))) {
+            throw new IllegalStateException("Invalid time interval");
+        }
+
+        Map<String, LocalDateTime> starts = new LinkedHashMap<>();
+        for (StatsWindowDto window : query.getWindows()) {
+            if (prefix != null ? window.getId() == null : window.getUri() == null) {
+                throw new IllegalStateException("Every window should have an id with uriPrefix or an uri without it");
+            }
+            String uri = prefix != null ? prefix + window.getId() : window.getUri();
+            LocalDateTime start = window.getStart().isAfter(query.getStart()) ? window.getStart() : query.getStart();
+            if (!start.isAfter(end)) {
+                starts.merge(uri, start, (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+        log.info("Get stats for windows with params --> windows={}, after={}, end={}, unique={}",
+                starts.size(), after, end, query.isUnique());
+        if (starts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return repository.getStatsForWindows(starts, after, end, query.isUnique());
+    }
+
+    private Map<String, Long> toHits(List<ViewStatsDto> stats, String prefix) {
+        Map<String, Long> hits = new HashMap<>();
+        for (ViewStatsDto viewStats : stats) {
+            String key = prefix != null ? viewStats.getUri().substring(prefix.length()) : viewStats.getUri();
+            hits.merge(key, viewStats.getHits(), Long::sum);
+        }
+        return hits;
+    }
+
+    /**
+     * Splits {@code [start, end]} into whole day and hour buckets answered from rollups
+     * and ragged edges scanned from raw hits.
+     */
+    static List<StatsSegment> planSegments(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime hoursFrom = RollupGranularity.HOUR.nextBoundary(start);
+        LocalDateTime hoursTo = RollupGranularity.HOUR.bucketOf(end);
+        if (!hoursFrom.isBefore(hoursTo)) {
+            return List.of(StatsSegment.raw(start, end, true));
+        }
+
+        List<StatsSegment> segments = new ArrayList<>();
+        if (start.isBefore(hoursFrom)) {
+            segments.add(StatsSegment.raw(start, hoursFrom, false));
+        }
+        LocalDateTime daysFrom = RollupGranularity.DAY.nextBoundary(hoursFrom);
+        LocalDateTime daysTo = RollupGranularity.DAY.bucketOf(hoursTo);
+        if (daysFrom.isBefore(daysTo)) {
+            if (hoursFrom.isBefore(daysFrom)) {
+                segments.add(StatsSegment.rollup(RollupGranularity.HOUR, hoursFrom, daysFrom));
+            }
+            segments.add(StatsSegment.rollup(RollupGranularity.DAY, daysFrom, daysTo));
+            if (daysTo.isBefore(hoursTo)) {
+                segments.add(StatsSegment.rollup(RollupGranularity.HOUR, daysTo, hoursTo));
+            }
+        } else {
+            segments.add(StatsSegment.rollup(RollupGranularity.HOUR, hoursFrom, hoursTo));
+        }
+        segments.add(StatsSegment.raw(hoursTo, end, true));
+        return segments;
+    }
 
 }
@@ -0,0 +1,171 @@
+package isthatkirill.stats.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct counter with 2^12 one-byte registers (about 1.6% standard error).
+ * Serialized as a sparse list of non-zero registers until the dense form is smaller.
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+    private static final int SPARSE_ENTRY_BYTES = 3;
+    private static final int MAX_RANK = Long.SIZE - PRECISION + 1;
+    private static final double ALPHA_INF = 1 / (2 * Math.log(2));
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, MAX_RANK);
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Improved raw estimator from Ertl, "New cardinality estimation algorithms for HyperLogLog sketches",
+     * which stays unbiased across small and large cardinalities without empirical correction tables.
+     */
+    public long estimate() {
+        int[] histogram = new int[MAX_RANK + 1];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        double z = REGISTERS * tau(1 - (double) histogram[MAX_RANK] / REGISTERS);
+        for (int k = MAX_RANK - 1; k >= 1; k--) {
+            z = 0.5 * (z + histogram[k]);
+        }
+        z += REGISTERS * sigma((double) histogram[0] / REGISTERS);
+        return Math.round(ALPHA_INF * REGISTERS * REGISTERS / z);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * SPARSE_ENTRY_BYTES >= REGISTERS) {
+            byte[] bytes = new byte[REGISTERS + 1];
+            bytes[0] = DENSE;
+            System.arraycopy(registers, 0, bytes, 1, REGISTERS);
+            return bytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + nonZero * SPARSE_ENTRY_BYTES);
+        out.write(SPARSE);
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                out.write(i >>> 8);
+                out.write(i);
+                out.write(registers[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Empty sketch");
+        }
+        if (bytes[0] == DENSE) {
+            if (bytes.length != REGISTERS + 1) {
+                throw new IllegalArgumentException("Invalid dense sketch length: " + bytes.length);
+            }
+            return new HyperLogLog(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        if (bytes[0] != SPARSE || (bytes.length - 1) % SPARSE_ENTRY_BYTES != 0) {
+            throw new IllegalArgumentException("Invalid sketch encoding");
+        }
+        byte[] registers = new byte[REGISTERS];
+        for (int i = 1; i < bytes.length; i += SPARSE_ENTRY_BYTES) {
+            int index = ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
+            registers[index] = bytes[i + 2];
+        }
+        return new HyperLogLog(registers);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof HyperLogLog && Arrays.equals(registers, ((HyperLogLog) o).registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= Math.pow(1 - x, 2) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,30 @@
+create table if not exists endpoint_hits_hourly (
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_endpoint_hits_hourly PRIMARY KEY (app, uri, bucket)
+);
+
+create table if not exists endpoint_hits_daily (
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_endpoint_hits_daily PRIMARY KEY (app, uri, bucket)
+);
+
+-- distinct-IP sketches; rows of databases that predate them are filled by RollupSketchBackfill
+alter table endpoint_hits_hourly add column if not exists ip_sketch BYTEA;
+alter table endpoint_hits_daily add column if not exists ip_sketch BYTEA;
+
+-- rollups of the hits stored so far, unless an earlier schema.sql already built them
+insert into endpoint_hits_hourly (app, uri, bucket, hits)
+select app, uri, date_trunc('hour', created), count(*) from endpoint_hits
+where not exists (select 1 from endpoint_hits_hourly)
+group by app, uri, date_trunc('hour', created);
+
+insert into endpoint_hits_daily (app, uri, bucket, hits)
+select app, uri, date_trunc('day', created), count(*) from endpoint_hits
+where not exists (select 1 from endpoint_hits_daily)
+group by app, uri, date_trunc('day', created);
@@ -0,0 +1,4 @@
+create index IF NOT EXISTS idx_endpoint_hits_uri_ip_created ON endpoint_hits (uri, ip, created);
+create index IF NOT EXISTS idx_endpoint_hits_uri_created ON endpoint_hits (uri, created);
+create index IF NOT EXISTS idx_endpoint_hits_hourly_bucket ON endpoint_hits_hourly (bucket);
+create index IF NOT EXISTS idx_endpoint_hits_daily_bucket ON endpoint_hits_daily (bucket);
@@ -0,0 +1,6 @@
+-- built without locking writes to endpoint_hits; flyway runs this script outside a transaction.
+-- an interrupted build leaves an INVALID index behind: drop it before re-running the migration
+create index CONCURRENTLY IF NOT EXISTS idx_endpoint_hits_uri_ip_created ON endpoint_hits (uri, ip, created);
+create index CONCURRENTLY IF NOT EXISTS idx_endpoint_hits_uri_created ON endpoint_hits (uri, created);
+create index CONCURRENTLY IF NOT EXISTS idx_endpoint_hits_hourly_bucket ON endpoint_hits_hourly (bucket);
+create index CONCURRENTLY IF NOT EXISTS idx_endpoint_hits_daily_bucket ON endpoint_hits_daily (bucket);
@@ -0,0 +1,3 @@
+-- (uri) is a prefix of the (uri, created) and (uri, ip, created) indexes of V2_1: dropping it saves an index write per hit.
+-- dropped without locking writes, outside a transaction
+drop index CONCURRENTLY IF EXISTS idx_endpoint_hits_uri;
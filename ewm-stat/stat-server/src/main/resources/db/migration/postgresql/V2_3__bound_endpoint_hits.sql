@@ -0,0 +1,12 @@
+-- bounds the existing hits from above so that V3 can attach endpoint_hits as a partition without scanning it.
+-- NOT VALID only takes a brief lock and checks new rows; V2_4 validates the existing ones.
+-- the bound leaves a day of headroom for hits stamped ahead by clients while the migration runs
+do $$
+declare
+    bound TIMESTAMP;
+begin
+    select date_trunc('day', greatest(max(created), LOCALTIMESTAMP)) + INTERVAL '2 day' into bound
+    from endpoint_hits;
+    execute format('alter table endpoint_hits add constraint chk_endpoint_hits_created_bound check (created < %L) not valid',
+                   bound);
+end $$;
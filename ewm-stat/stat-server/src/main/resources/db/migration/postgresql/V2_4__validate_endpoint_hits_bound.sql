@@ -0,0 +1,3 @@
+-- scans the existing hits under SHARE UPDATE EXCLUSIVE, which lets inserts and reads go on,
+-- in its own transaction so that the lock of V2_3 is not held meanwhile
+alter table endpoint_hits validate constraint chk_endpoint_hits_created_bound;
@@ -0,0 +1,52 @@
+-- endpoint_hits becomes range-partitioned on created; later partitions are created by HitPartitionManager.
+-- there is no default partition, as it would rule out detaching expired partitions concurrently: hits outside
+-- every range are turned away by the service until HitPartitionManager creates their partition.
+-- the existing table is attached as one partition, endpoint_hits_legacy, bounded by the constraint of V2_3:
+-- the validated constraint lets the attach skip the scan of the whole history.
+-- the legacy partition keeps all history and leaves with the retention policy as a whole, once its upper bound
+-- is past the retention cutoff. to expire history earlier, split it by hand, one range at a time:
+--   1. copy the range into endpoint_hits_<yyyymm> (like endpoint_hits including all) and give it a validated
+--      check constraint of the range bounds;
+--   2. detach endpoint_hits_legacy concurrently and attach the new table for the range;
+--   3. delete the range from endpoint_hits_legacy in batches, add and validate a check constraint of the bounds
+--      left to it and attach it back. the rest of the history is not visible to stats between steps 2 and 3.
+alter table endpoint_hits rename to endpoint_hits_legacy;
+alter table endpoint_hits_legacy alter column id drop identity;
+
+-- (app) and (ip) alone serve no query; the indexes of V1 and V2_1 are matched by the partitioned ones on attach
+drop index if exists idx_endpoint_hits_app;
+drop index if exists idx_endpoint_hits_ip;
+alter index IF EXISTS idx_endpoint_hits_created rename to idx_endpoint_hits_legacy_created;
+alter index IF EXISTS idx_endpoint_hits_uri_ip_created rename to idx_endpoint_hits_legacy_uri_ip_created;
+alter index IF EXISTS idx_endpoint_hits_uri_created rename to idx_endpoint_hits_legacy_uri_created;
+
+create sequence endpoint_hits_id_seq;
+select setval('endpoint_hits_id_seq', coalesce(max(id), 0) + 1, false) from endpoint_hits_legacy;
+
+create table endpoint_hits (
+    id BIGINT NOT NULL DEFAULT nextval('endpoint_hits_id_seq'),
+    app VARCHAR(255) NOT NULL,
+    ip VARCHAR(31) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    created TIMESTAMP NOT NULL
+) partition by range (created);
+
+alter sequence endpoint_hits_id_seq owned by endpoint_hits.id;
+
+create index idx_endpoint_hits_created ON endpoint_hits (created);
+create index idx_endpoint_hits_uri_ip_created ON endpoint_hits (uri, ip, created);
+create index idx_endpoint_hits_uri_created ON endpoint_hits (uri, created);
+
+do $$
+declare
+    legacy_end TIMESTAMP;
+begin
+    select (regexp_match(pg_get_constraintdef(oid), '''([^'']+)'''))[1]::TIMESTAMP into legacy_end
+    from pg_constraint
+    where conrelid = 'endpoint_hits_legacy'::regclass and conname = 'chk_endpoint_hits_created_bound';
+    execute format('alter table endpoint_hits attach partition endpoint_hits_legacy for values from (MINVALUE) to (%L)',
+                   legacy_end);
+end $$;
+
+-- the partition bound enforces the same from now on
+alter table endpoint_hits_legacy drop constraint chk_endpoint_hits_created_bound;
@@ -0,0 +1,116 @@
+package isthatkirill.stats;
+
+import isthatkirill.stats.model.HitPartition;
+import isthatkirill.stats.repository.CustomStatsRepositoryImpl;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upgrades a database created by the pre-migration schema.sql, the way an existing deployment is baselined.
+ */
+class SchemaMigrationTest {
+
+    @Test
+    void baselineDatabaseIsUpgradedOnH2Test() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "test", "test");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("RUNSCRIPT FROM 'classpath:db/migration/common/V1__init.sql'");
+        jdbcTemplate.execute("INSERT INTO endpoint_hits (app, uri, ip, created) VALUES " +
+                "('ewm', '/events/1', '1.1.1.1', NOW() - INTERVAL '2' DAY), " +
+                "('ewm', '/events/1', '1.1.1.2', NOW() - INTERVAL '2' DAY), " +
+                "('ewm', '/events/2', '1.1.1.1', NOW())");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        flyway.migrate();
+
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("2.1");
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(hits) FROM endpoint_hits_hourly", Long.class)).isEqualTo(3L);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(hits) FROM endpoint_hits_daily", Long.class)).isEqualTo(3L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits_daily WHERE ip_sketch IS NULL",
+                Long.class)).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE INDEX_NAME IN ('IDX_ENDPOINT_HITS_URI_IP_CREATED', 'IDX_ENDPOINT_HITS_URI_CREATED', " +
+                "'IDX_ENDPOINT_HITS_HOURLY_BUCKET', 'IDX_ENDPOINT_HITS_DAILY_BUCKET')", Long.class)).isEqualTo(4L);
+    }
+
+    @Test
+    @EnabledIf("dockerAvailable")
+    void baselineDatabaseIsPartitionedOnPostgreSqlTest() {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14-alpine")) {
+            postgres.start();
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(),
+                    postgres.getUsername(), postgres.getPassword());
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/common/V1__init.sql")).execute(dataSource);
+            jdbcTemplate.execute("INSERT INTO endpoint_hits (app, uri, ip, created) VALUES " +
+                    "('ewm', '/events/1', '1.1.1.1', LOCALTIMESTAMP - INTERVAL '40 days'), " +
+                    "('ewm', '/events/1', '1.1.1.2', LOCALTIMESTAMP - INTERVAL '1 day'), " +
+                    "('ewm', '/events/2', '1.1.1.1', LOCALTIMESTAMP)");
+
+            Flyway flyway = Flyway.configure()
+                    .dataSource(dataSource)
+                    .locations("classpath:db/migration/common", "classpath:db/migration/postgresql")
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1")
+                    .load();
+            flyway.migrate();
+
+            assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("3");
+            assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'endpoint_hits'",
+                    String.class)).containsExactlyInAnyOrder("idx_endpoint_hits_created",
+                    "idx_endpoint_hits_uri_ip_created", "idx_endpoint_hits_uri_created");
+            assertThat(jdbcTemplate.queryForObject("SELECT SUM(hits) FROM endpoint_hits_daily", Long.class))
+                    .isEqualTo(3L);
+
+            CustomStatsRepositoryImpl repository = new CustomStatsRepositoryImpl(
+                    new NamedParameterJdbcTemplate(jdbcTemplate));
+            assertThat(repository.isHitsPartitioned()).isTrue();
+            List<HitPartition> partitions = repository.getHitPartitions();
+            assertThat(partitions).extracting(HitPartition::getName).containsExactly("endpoint_hits_legacy");
+            LocalDateTime legacyEnd = partitions.get(0).getTo();
+            assertThat(partitions.get(0).getFrom()).isNull();
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_constraint " +
+                    "WHERE conname = 'chk_endpoint_hits_created_bound'", Long.class)).isZero();
+
+            repository.createHitPartition(new HitPartition("endpoint_hits_next", legacyEnd, legacyEnd.plusDays(1)));
+            jdbcTemplate.update("INSERT INTO endpoint_hits (app, uri, ip, created) VALUES ('ewm', '/events/3', " +
+                    "'1.1.1.3', ?)", legacyEnd.plusHours(1));
+            assertThat(jdbcTemplate.queryForObject("SELECT id FROM endpoint_hits WHERE uri = '/events/3'", Long.class))
+                    .isEqualTo(4L);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits_next", Long.class))
+                    .isEqualTo(1L);
+            assertThat(repository.getHitPartitions()).extracting(HitPartition::getName)
+                    .containsExactly("endpoint_hits_legacy", "endpoint_hits_next");
+
+            repository.detachHitPartition("endpoint_hits_legacy");
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits", Long.class)).isEqualTo(1L);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits_legacy", Long.class))
+                    .isEqualTo(3L);
+        }
+    }
+
+    static boolean dockerAvailable() {
+        return DockerClientFactory.instance().isDockerAvailable();
+    }
+
+}
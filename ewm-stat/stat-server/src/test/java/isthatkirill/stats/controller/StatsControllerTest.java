@@ -2,6 +2,7 @@ package isthatkirill.stats.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import isthatkirill.stats.dto.EndpointHitDto;
+import isthatkirill.stats.dto.StatsQueryDto;
 import isthatkirill.stats.dto.ViewStatsDto;
 import isthatkirill.stats.service.StatsService;
 import lombok.SneakyThrows;
@@ -17,6 +18,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 import static isthatkirill.stats.util.Formats.DATE_PATTERN;
 import static org.mockito.Mockito.*;
@@ -77,10 +79,41 @@ class StatsControllerTest {
                 .andExpect(jsonPath("$.error").value("Validation error"));
     }
 
+    @Test
+    @SneakyThrows
+    void addHitsTest() {
+        mvc.perform(post("/hit/batch")
+                        .content(objectMapper.writeValueAsString(List.of(endpointHitDto, endpointHitDto)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        verify(statsService, times(1)).addHits(anyList());
+    }
+
+    @Test
+    @SneakyThrows
+    void addInvalidHitsTest() {
+        EndpointHitDto invalidHit = EndpointHitDto.builder()
+                .app("app")
+                .ip("1.1.1.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        mvc.perform(post("/hit/batch")
+                        .content(objectMapper.writeValueAsString(List.of(endpointHitDto, invalidHit)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
+
+        verify(statsService, never()).addHits(anyList());
+    }
+
     @Test
     @SneakyThrows
     void getStatsTest() {
-        when(statsService.getStats(any(), any(), anyList(), anyBoolean()))
+        when(statsService.getStats(any(), any(), anyList(), anyBoolean(), any()))
                 .thenReturn(List.of(viewStatsDto));
 
         mvc.perform(get("/stats")
@@ -96,6 +129,20 @@ class StatsControllerTest {
                 .andExpect(jsonPath("$[0].uri").value(viewStatsDto.getUri()));
     }
 
+    @Test
+    @SneakyThrows
+    void getStatsWithUnknownPrecisionTest() {
+        mvc.perform(get("/stats")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("start", LocalDateTime.now().format(formatter))
+                        .param("end", LocalDateTime.now().format(formatter))
+                        .param("unique", "true")
+                        .param("precision", "roughly"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid arguments given"));
+    }
+
     @Test
     @SneakyThrows
     void getWithMissingRequiredParamTest() {
@@ -108,4 +155,41 @@ class StatsControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Missing request parameter"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @SneakyThrows
+    void queryStatsTest() {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(LocalDateTime.now().minusDays(1))
+                .end(LocalDateTime.now())
+                .uriPrefix("/events/")
+                .ids(List.of(1L, 2L))
+                .build();
+        when(statsService.queryStats(any())).thenReturn(Map.of("1", 5L));
+
+        mvc.perform(post("/stats/query")
+                        .content(objectMapper.writeValueAsString(query))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['1']").value(5L));
+    }
+
+    @Test
+    @SneakyThrows
+    void queryStatsWithoutStartTest() {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .end(LocalDateTime.now())
+                .uris(List.of("/uri"))
+                .build();
+
+        mvc.perform(post("/stats/query")
+                        .content(objectMapper.writeValueAsString(query))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
+
+        verify(statsService, never()).queryStats(any());
+    }
+}
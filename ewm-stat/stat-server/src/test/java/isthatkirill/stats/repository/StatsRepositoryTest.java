@@ -1,6 +1,9 @@
 package isthatkirill.stats.repository;
 
 import isthatkirill.stats.dto.ViewStatsDto;
+import isthatkirill.stats.model.EndpointHit;
+import isthatkirill.stats.model.RollupGranularity;
+import isthatkirill.stats.model.StatsSegment;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -12,7 +15,8 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
-@Sql(value = {"/testdata/before_test_class.sql", "/schema.sql", "/testdata/add_more_hits.sql"})
+@Sql(value = {"/testdata/before_test_class.sql", "/schema.sql", "/testdata/add_more_hits.sql",
+        "/testdata/rebuild_rollups.sql"})
 class StatsRepositoryTest {
 
     @Autowired
@@ -59,4 +63,59 @@ class StatsRepositoryTest {
                 .extracting(ViewStatsDto::getHits)
                 .containsExactly(2L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStatsFromSegmentsTest() {
+        LocalDateTime start = LocalDateTime.now().minusDays(3);
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+        LocalDateTime daysFrom = RollupGranularity.DAY.nextBoundary(start);
+        LocalDateTime daysTo = RollupGranularity.DAY.bucketOf(end);
+
+        List<ViewStatsDto> stats = statsRepository.getStats(List.of(
+                StatsSegment.raw(start, daysFrom, false),
+                StatsSegment.rollup(RollupGranularity.DAY, daysFrom, daysTo),
+                StatsSegment.raw(daysTo, end, true)), List.of("/test"));
+
+        assertThat(stats).hasSize(1)
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(3L);
+    }
+
+    @Test
+    void addToRollupsTest() {
+        LocalDateTime timestamp = LocalDateTime.now().minusDays(10);
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/rollup")
+                .ip("1.1.1.1")
+                .timestamp(timestamp)
+                .build();
+
+        statsRepository.addToRollups(List.of(hit, hit));
+        statsRepository.addToRollups(List.of(hit));
+
+        LocalDateTime hour = RollupGranularity.HOUR.bucketOf(timestamp);
+        LocalDateTime day = RollupGranularity.DAY.bucketOf(timestamp);
+        assertThat(statsRepository.getStats(List.of(
+                StatsSegment.rollup(RollupGranularity.HOUR, hour, hour.plusHours(1))), null))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(3L);
+        assertThat(statsRepository.getStats(List.of(
+                StatsSegment.rollup(RollupGranularity.DAY, day, day.plusDays(1))), null))
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(3L);
+    }
+
+    @Test
+    void fillMissingSketchesTest() {
+        assertThat(statsRepository.fillMissingSketches(RollupGranularity.DAY, 100)).isPositive();
+        assertThat(statsRepository.fillMissingSketches(RollupGranularity.DAY, 100)).isZero();
+
+        LocalDateTime day = RollupGranularity.DAY.bucketOf(LocalDateTime.now().minusDays(1));
+        assertThat(statsRepository.getIpSketches(List.of(
+                StatsSegment.rollup(RollupGranularity.DAY, day, day.plusDays(1))), List.of("/test/another")))
+                .singleElement()
+                .satisfies(sketch -> assertThat(sketch.getSketch().estimate()).isEqualTo(2));
+    }
+
+}
@@ -0,0 +1,71 @@
+package isthatkirill.stats.service;
+
+import isthatkirill.stats.dto.EndpointHitDto;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares single-hit ingestion against {@code /hit/batch} ingestion and logs both rates.
+ * Run with {@code -Dbenchmark=true} and point {@code spring.datasource.url} at PostgreSQL for representative rates.
+ * No speedup is asserted unless one is given with {@code -Dbenchmark.min-speedup}.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Sql(value = {"/testdata/before_test_class.sql", "/schema.sql"})
+class HitIngestionBenchmarkTest {
+
+    private static final int HITS = Integer.getInteger("benchmark.hits", 20_000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch-size", 1_000);
+    private static final double MIN_SPEEDUP = Double.parseDouble(System.getProperty("benchmark.min-speedup", "1"));
+
+    @Autowired
+    private StatsService statsService;
+
+    @Test
+    void batchIngestionIsFasterThanSingleHitsTest() {
+        List<EndpointHitDto> hits = buildHits();
+
+        long singleStart = System.nanoTime();
+        hits.forEach(statsService::addHit);
+        long singleNanos = System.nanoTime() - singleStart;
+
+        long batchStart = System.nanoTime();
+        for (int i = 0; i < hits.size(); i += BATCH_SIZE) {
+            statsService.addHits(hits.subList(i, Math.min(i + BATCH_SIZE, hits.size())));
+        }
+        long batchNanos = System.nanoTime() - batchStart;
+
+        double singleRate = HITS * 1e9 / singleNanos;
+        double batchRate = HITS * 1e9 / batchNanos;
+        log.info("Hit ingestion --> single={} hits/s, batch={} hits/s, speedup={}x",
+                Math.round(singleRate), Math.round(batchRate), String.format("%.1f", batchRate / singleRate));
+
+        assertThat(batchRate / singleRate).isGreaterThanOrEqualTo(MIN_SPEEDUP);
+    }
+
+    private List<EndpointHitDto> buildHits() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EndpointHitDto> hits = new ArrayList<>(HITS);
+        for (int i = 0; i < HITS; i++) {
+            hits.add(EndpointHitDto.builder()
+                    .app("ewm")
+                    .uri("/events/" + (i % 100))
+                    .ip("10.0." + (i % 250) + "." + (i % 200))
+                    .timestamp(now)
+                    .build());
+        }
+        return hits;
+    }
+
+}
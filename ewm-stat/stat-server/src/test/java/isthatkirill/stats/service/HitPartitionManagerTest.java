@@ -0,0 +1,130 @@
+package isthatkirill.stats.service;
+
+import isthatkirill.stats.model.HitPartition;
+import isthatkirill.stats.model.PartitionInterval;
+import isthatkirill.stats.repository.StatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class HitPartitionManagerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 12, 0, 0);
+
+    private final StatsRepository repository = mock(StatsRepository.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Test
+    void notPartitionedTableIsLeftAloneTest() {
+        when(repository.isHitsPartitioned()).thenReturn(false);
+
+        manager(PartitionInterval.DAY, 2, 30, true).maintain();
+
+        verify(repository).isHitsPartitioned();
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void dailyPartitionsAreCreatedAheadFromLastBoundTest() {
+        partitions(new HitPartition("endpoint_hits_legacy", null, day(18)));
+
+        manager(PartitionInterval.DAY, 2, 0, false).maintain();
+
+        verify(repository).createHitPartition(new HitPartition("endpoint_hits_20261018", day(18), day(19)));
+        verify(repository).createHitPartition(new HitPartition("endpoint_hits_20261019", day(19), day(20)));
+        verify(repository, times(2)).createHitPartition(any());
+        verify(repository, never()).detachHitPartition(anyString());
+    }
+
+    @Test
+    void monthlyPartitionsAlignToMonthsTest() {
+        partitions(new HitPartition("endpoint_hits_legacy", null, day(18)));
+
+        manager(PartitionInterval.MONTH, 1, 0, false).maintain();
+
+        LocalDateTime november = LocalDateTime.of(2026, 11, 1, 0, 0);
+        verify(repository).createHitPartition(new HitPartition("endpoint_hits_20261018", day(18), november));
+        verify(repository).createHitPartition(new HitPartition("endpoint_hits_20261101", november,
+                LocalDateTime.of(2026, 12, 1, 0, 0)));
+        verify(repository, times(2)).createHitPartition(any());
+    }
+
+    @Test
+    void nothingIsCreatedWhenAheadTest() {
+        partitions(new HitPartition("endpoint_hits_20261017", day(17), day(18)),
+                new HitPartition("endpoint_hits_20261018", day(18), day(19)));
+
+        manager(PartitionInterval.DAY, 1, 0, false).maintain();
+
+        verify(repository, never()).createHitPartition(any());
+    }
+
+    @Test
+    void expiredPartitionsAreDetachedTest() {
+        partitions(new HitPartition("endpoint_hits_legacy", null, day(1)),
+                new HitPartition("endpoint_hits_20261001", day(1), day(2)),
+                new HitPartition("endpoint_hits_20261002", day(2), day(3)),
+                new HitPartition("endpoint_hits_20261003", day(3), day(20)));
+
+        manager(PartitionInterval.DAY, 1, 15, false).maintain();
+
+        verify(repository).detachHitPartition("endpoint_hits_legacy");
+        verify(repository).detachHitPartition("endpoint_hits_20261001");
+        verify(repository, times(2)).detachHitPartition(anyString());
+        verify(repository, never()).dropHitPartition(anyString());
+    }
+
+    @Test
+    void expiredPartitionsAreDroppedTest() {
+        partitions(new HitPartition("endpoint_hits_20261001", day(1), day(2)),
+                new HitPartition("endpoint_hits_20261002", day(2), day(20)));
+
+        manager(PartitionInterval.DAY, 1, 15, true).maintain();
+
+        verify(repository).detachHitPartition("endpoint_hits_20261001");
+        verify(repository).dropHitPartition("endpoint_hits_20261001");
+        verify(repository, times(1)).dropHitPartition(anyString());
+    }
+
+    @Test
+    void hitsOutsidePartitionsAreNotAcceptedTest() {
+        partitions(new HitPartition("endpoint_hits_20261017", day(17), day(18)),
+                new HitPartition("endpoint_hits_20261018", day(18), day(19)));
+        HitPartitionManager manager = manager(PartitionInterval.DAY, 1, 0, false);
+
+        assertTrue(manager.accepts(day(16)));
+        manager.maintain();
+
+        assertTrue(manager.accepts(day(17)));
+        assertTrue(manager.accepts(day(19).minusSeconds(1)));
+        assertFalse(manager.accepts(day(16)));
+        assertFalse(manager.accepts(day(19)));
+    }
+
+    private void partitions(HitPartition... partitions) {
+        when(repository.isHitsPartitioned()).thenReturn(true);
+        when(repository.getHitPartitions()).thenReturn(List.of(partitions));
+    }
+
+    private HitPartitionManager manager(PartitionInterval interval, int premake, int retentionDays,
+                                        boolean dropExpired) {
+        return new HitPartitionManager(repository, transactionTemplate, interval, premake, retentionDays, dropExpired,
+                0, Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    private static LocalDateTime day(int dayOfMonth) {
+        return LocalDateTime.of(2026, 10, dayOfMonth, 0, 0);
+    }
+
+}
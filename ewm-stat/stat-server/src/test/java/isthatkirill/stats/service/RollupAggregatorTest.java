@@ -0,0 +1,67 @@
+package isthatkirill.stats.service;
+
+import isthatkirill.stats.model.EndpointHit;
+import isthatkirill.stats.repository.StatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class RollupAggregatorTest {
+
+    private final StatsRepository repository = mock(StatsRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    void queuedHitsAreAddedInBatchesTest() {
+        RollupAggregator aggregator = new RollupAggregator(repository, transactionManager, 2, 1000);
+        List<EndpointHit> hits = List.of(hit("1.1.1.1"), hit("1.1.1.2"), hit("1.1.1.3"));
+
+        hits.forEach(aggregator::add);
+        verifyNoInteractions(repository);
+        aggregator.flush();
+
+        verify(repository).addToRollups(hits.subList(0, 2));
+        verify(repository).addToRollups(hits.subList(2, 3));
+    }
+
+    @Test
+    void failedBatchIsKeptForNextFlushTest() {
+        RollupAggregator aggregator = new RollupAggregator(repository, transactionManager, 10, 1000);
+        doThrow(new IllegalStateException("down")).doNothing().when(repository).addToRollups(anyList());
+
+        EndpointHit hit = hit("1.1.1.1");
+
+        aggregator.add(hit);
+        assertThrows(IllegalStateException.class, aggregator::flush);
+        aggregator.flush();
+
+        verify(repository, times(2)).addToRollups(List.of(hit));
+    }
+
+    @Test
+    void hitIsAddedRightAwayWithoutFlushIntervalTest() {
+        RollupAggregator aggregator = new RollupAggregator(repository, transactionManager, 10, 0);
+
+        EndpointHit hit = hit("1.1.1.1");
+
+        aggregator.add(hit);
+
+        verify(repository).addToRollups(List.of(hit));
+    }
+
+    private static EndpointHit hit(String ip) {
+        return EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip(ip)
+                .timestamp(LocalDateTime.of(2026, 10, 17, 12, 0))
+                .build();
+    }
+
+}
@@ -1,7 +1,13 @@
 package isthatkirill.stats.service;
 
 import isthatkirill.stats.dto.EndpointHitDto;
+import isthatkirill.stats.dto.StatsQueryDto;
+import isthatkirill.stats.dto.StatsWindowDto;
 import isthatkirill.stats.dto.ViewStatsDto;
+import isthatkirill.stats.model.RollupGranularity;
+import isthatkirill.stats.model.StatsPrecision;
+import isthatkirill.stats.model.StatsSegment;
+import isthatkirill.stats.util.HyperLogLog;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -12,9 +18,12 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -45,7 +54,7 @@ class StatsServiceImplTest {
 
     @Test
     @Order(2)
-    @Sql(value = "/testdata/add_more_hits.sql")
+    @Sql(value = {"/testdata/add_more_hits.sql", "/testdata/rebuild_rollups.sql"})
     void addHitWithNullFieldTest() {
 
         EndpointHitDto endpointHit = EndpointHitDto.builder()
@@ -63,7 +72,7 @@ class StatsServiceImplTest {
     @Order(3)
     void getAllStatsTest() {
         List<ViewStatsDto> stats = statsService.getStats(LocalDateTime.now().minusDays(3),
-                LocalDateTime.now().plusDays(1), null, false);
+                LocalDateTime.now().plusDays(1), null, false, StatsPrecision.EXACT);
 
         assertThat(stats).hasSize(3)
                 .extracting(ViewStatsDto::getHits)
@@ -74,7 +83,7 @@ class StatsServiceImplTest {
     @Order(4)
     void getAllStatsForUriTest() {
         List<ViewStatsDto> stats = statsService.getStats(LocalDateTime.now().minusDays(3),
-                LocalDateTime.now().plusDays(1), List.of("/test"), false);
+                LocalDateTime.now().plusDays(1), List.of("/test"), false, StatsPrecision.EXACT);
 
         assertThat(stats).hasSize(1)
                 .extracting(ViewStatsDto::getHits)
@@ -85,7 +94,7 @@ class StatsServiceImplTest {
     @Order(5)
     void getAllStatsForUriUniqueTest() {
         List<ViewStatsDto> stats = statsService.getStats(LocalDateTime.now().minusDays(3),
-                LocalDateTime.now().plusDays(1), List.of("/test"), true);
+                LocalDateTime.now().plusDays(1), List.of("/test"), true, StatsPrecision.EXACT);
 
         assertThat(stats).hasSize(1)
                 .extracting(ViewStatsDto::getHits)
@@ -96,11 +105,202 @@ class StatsServiceImplTest {
     @Order(6)
     void getAllStatsUniqueTest() {
         List<ViewStatsDto> stats = statsService.getStats(LocalDateTime.now().minusDays(3),
-                LocalDateTime.now().plusDays(1), null, true);
+                LocalDateTime.now().plusDays(1), null, true, StatsPrecision.EXACT);
 
         assertThat(stats).hasSize(3)
                 .extracting(ViewStatsDto::getHits)
                 .containsExactly(2L, 2L, 1L);
     }
 
+    @Test
+    @Order(7)
+    void addHitsTest() {
+        List<EndpointHitDto> hits = List.of(
+                EndpointHitDto.builder().uri("/batch").ip("1.1.1.1").app("ewm").timestamp(LocalDateTime.now()).build(),
+                EndpointHitDto.builder().uri("/batch").ip("1.1.1.2").app("ewm").timestamp(LocalDateTime.now()).build(),
+                EndpointHitDto.builder().uri("/batch").ip("1.1.1.2").app("ewm").timestamp(LocalDateTime.now()).build()
+        );
+
+        statsService.addHits(hits);
+
+        List<ViewStatsDto> stats = statsService.getStats(LocalDateTime.now().minusDays(3),
+                LocalDateTime.now().plusDays(1), List.of("/batch"), false, StatsPrecision.EXACT);
+
+        assertThat(stats).hasSize(1)
+                .extracting(ViewStatsDto::getHits)
+                .containsExactly(3L);
+    }
+
+    @Test
+    @Order(8)
+    void getApproximateUniqueStatsMatchesExactForSmallCountsTest() {
+        List<ViewStatsDto> exact = statsService.getStats(LocalDateTime.now().minusDays(3),
+                LocalDateTime.now().plusDays(1), null, true, StatsPrecision.EXACT);
+        List<ViewStatsDto> approximate = statsService.getStats(LocalDateTime.now().minusDays(3),
+                LocalDateTime.now().plusDays(1), null, true, StatsPrecision.APPROXIMATE);
+
+        assertThat(approximate).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(exact);
+    }
+
+    @Test
+    @Order(9)
+    void getApproximateUniqueStatsIsWithinErrorBoundsTest() {
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            hits.add(EndpointHitDto.builder()
+                    .uri("/sketch")
+                    .ip("10.0." + (i / 250) + "." + (i % 250))
+                    .app("ewm")
+                    .timestamp(start.plusSeconds(i * 30L))
+                    .build());
+        }
+        statsService.addHits(hits);
+        statsService.addHits(hits.subList(0, 1_000));
+
+        long exact = statsService.getStats(start.minusHours(1), LocalDateTime.now(), List.of("/sketch"),
+                true, StatsPrecision.EXACT).get(0).getHits();
+        long approximate = statsService.getStats(start.minusHours(1), LocalDateTime.now(), List.of("/sketch"),
+                true, StatsPrecision.APPROXIMATE).get(0).getHits();
+
+        assertThat(exact).isEqualTo(5_000);
+        assertThat(Math.abs(approximate - exact) / (double) exact)
+                .isLessThanOrEqualTo(3 * 1.04 / Math.sqrt(HyperLogLog.REGISTERS));
+    }
+
+    @Test
+    @Order(10)
+    void queryStatsByIdsTest() {
+        statsService.addHits(List.of(
+                EndpointHitDto.builder().uri("/events/1").ip("1.1.1.1").app("ewm").timestamp(LocalDateTime.now()).build(),
+                EndpointHitDto.builder().uri("/events/1").ip("1.1.1.2").app("other").timestamp(LocalDateTime.now()).build(),
+                EndpointHitDto.builder().uri("/events/2").ip("1.1.1.1").app("ewm").timestamp(LocalDateTime.now()).build()
+        ));
+
+        Map<String, Long> hits = statsService.queryStats(StatsQueryDto.builder()
+                .start(LocalDateTime.now().minusDays(3))
+                .end(LocalDateTime.now().plusDays(1))
+                .uriPrefix("/events/")
+                .ids(List.of(1L, 2L, 3L))
+                .build());
+
+        assertThat(hits).containsExactlyInAnyOrderEntriesOf(Map.of("1", 2L, "2", 1L));
+    }
+
+    @Test
+    @Order(11)
+    void queryStatsByUrisTest() {
+        Map<String, Long> hits = statsService.queryStats(StatsQueryDto.builder()
+                .start(LocalDateTime.now().minusDays(3))
+                .end(LocalDateTime.now().plusDays(1))
+                .uris(List.of("/test", "/batch"))
+                .unique(true)
+                .build());
+
+        assertThat(hits).containsExactlyInAnyOrderEntriesOf(Map.of("/test", 2L, "/batch", 2L));
+    }
+
+    @Test
+    @Order(12)
+    void queryStatsForWindowsTest() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> hits = statsService.queryStats(StatsQueryDto.builder()
+                .start(now.minusDays(3))
+                .end(now.plusDays(1))
+                .windows(List.of(
+                        StatsWindowDto.builder().uri("/test").start(now.minusHours(36)).build(),
+                        StatsWindowDto.builder().uri("/test/another").start(now.minusDays(3)).build(),
+                        StatsWindowDto.builder().uri("/batch").start(now.plusDays(2)).build()))
+                .build());
+
+        assertThat(hits).containsExactlyInAnyOrderEntriesOf(Map.of("/test", 2L, "/test/another", 3L));
+    }
+
+    @Test
+    @Order(13)
+    void queryStatsForWindowsByIdsTest() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> hits = statsService.queryStats(StatsQueryDto.builder()
+                .start(now.minusDays(3))
+                .end(now.plusDays(1))
+                .uriPrefix("/events/")
+                .windows(List.of(
+                        StatsWindowDto.builder().id(1L).start(now.minusDays(1)).build(),
+                        StatsWindowDto.builder().id(2L).start(now.plusHours(1)).build()))
+                .unique(true)
+                .build());
+
+        assertThat(hits).containsExactlyInAnyOrderEntriesOf(Map.of("1", 2L));
+    }
+
+    @Test
+    @Order(14)
+    void queryStatsForWindowsAfterTest() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> hits = statsService.queryStats(StatsQueryDto.builder()
+                .start(now.minusDays(3))
+                .after(now.minusHours(36))
+                .end(now.plusDays(1))
+                .windows(List.of(
+                        StatsWindowDto.builder().uri("/test").start(now.minusDays(3)).build(),
+                        StatsWindowDto.builder().uri("/test/another").start(now.minusHours(30)).build()))
+                .unique(true)
+                .build());
+
+        assertThat(hits).containsExactlyInAnyOrderEntriesOf(Map.of("/test", 1L, "/test/another", 2L));
+    }
+
+    @Test
+    void queryStatsForWindowsWithoutIdTest() {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(LocalDateTime.now().minusDays(3))
+                .end(LocalDateTime.now().plusDays(1))
+                .uriPrefix("/events/")
+                .windows(List.of(StatsWindowDto.builder().uri("/events/1").start(LocalDateTime.now()).build()))
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> statsService.queryStats(query));
+    }
+
+    @Test
+    void queryStatsWithUrisAndIdsTest() {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(LocalDateTime.now().minusDays(3))
+                .end(LocalDateTime.now().plusDays(1))
+                .uris(List.of("/test"))
+                .uriPrefix("/events/")
+                .ids(List.of(1L))
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> statsService.queryStats(query));
+    }
+
+    @Test
+    void planSegmentsTest() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 22, 30, 15);
+        LocalDateTime end = LocalDateTime.of(2023, 1, 4, 1, 10, 0);
+
+        List<StatsSegment> segments = StatsServiceImpl.planSegments(start, end);
+
+        assertThat(segments).extracting(StatsSegment::getGranularity, StatsSegment::getFrom, StatsSegment::getTo)
+                .containsExactly(
+                        tuple(null, start, LocalDateTime.of(2023, 1, 1, 23, 0)),
+                        tuple(RollupGranularity.HOUR, LocalDateTime.of(2023, 1, 1, 23, 0), LocalDateTime.of(2023, 1, 2, 0, 0)),
+                        tuple(RollupGranularity.DAY, LocalDateTime.of(2023, 1, 2, 0, 0), LocalDateTime.of(2023, 1, 4, 0, 0)),
+                        tuple(RollupGranularity.HOUR, LocalDateTime.of(2023, 1, 4, 0, 0), LocalDateTime.of(2023, 1, 4, 1, 0)),
+                        tuple(null, LocalDateTime.of(2023, 1, 4, 1, 0), end));
+        assertThat(segments.get(segments.size() - 1).isToInclusive()).isTrue();
+    }
+
+    @Test
+    void planSegmentsWithoutWholeHourTest() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 22, 30, 15);
+        LocalDateTime end = LocalDateTime.of(2023, 1, 1, 23, 10, 0);
+
+        assertThat(StatsServiceImpl.planSegments(start, end))
+                .extracting(StatsSegment::isRaw, StatsSegment::getFrom, StatsSegment::getTo)
+                .containsExactly(tuple(true, start, end));
+    }
+
 }
@@ -0,0 +1,107 @@
+package isthatkirill.stats.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+
+    private static final double STANDARD_ERROR = 1.04 / Math.sqrt(HyperLogLog.REGISTERS);
+    private static final int TRIALS = 10;
+
+    @Test
+    void emptySketchTest() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    @Test
+    void smallCardinalityIsExactTest() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5; i++) {
+            sketch.add(ip(i));
+            sketch.add(ip(i));
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(5);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1_000, 5_000, 10_000, 50_000, 200_000})
+    void estimateIsWithinErrorBoundsTest(int cardinality) {
+        double totalError = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add(ip(trial * 10_000_019 + i));
+            }
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            totalError += error;
+
+            assertThat(error).isLessThanOrEqualTo(3 * STANDARD_ERROR);
+        }
+
+        assertThat(totalError / TRIALS).isLessThanOrEqualTo(2 * STANDARD_ERROR);
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnionTest() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            left.add(ip(i));
+            union.add(ip(i));
+        }
+        for (int i = 20_000; i < 60_000; i++) {
+            right.add(ip(i));
+            union.add(ip(i));
+        }
+
+        left.merge(right);
+
+        assertThat(left).isEqualTo(union);
+        assertThat(Math.abs(left.estimate() - 60_000) / 60_000.0).isLessThanOrEqualTo(3 * STANDARD_ERROR);
+    }
+
+    @Test
+    void sparseSerializationRoundTripTest() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add(ip(i));
+        }
+
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes.length).isLessThan(HyperLogLog.REGISTERS);
+        assertThat(HyperLogLog.fromBytes(bytes)).isEqualTo(sketch);
+    }
+
+    @Test
+    void denseSerializationRoundTripTest() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(ip(i));
+        }
+
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes).hasSize(HyperLogLog.REGISTERS + 1);
+        assertThat(HyperLogLog.fromBytes(bytes)).isEqualTo(sketch);
+    }
+
+    @Test
+    void invalidBytesTest() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{1, 2, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String ip(int value) {
+        return (value >>> 24 & 0xFF) + "." + (value >>> 16 & 0xFF) + "." + (value >>> 8 & 0xFF) + "." + (value & 0xFF);
+    }
+
+}
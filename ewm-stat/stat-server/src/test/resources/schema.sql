@@ -0,0 +1,4 @@
+-- Test reset script: recreates the schema from the migrations, keep in step with db/migration/common and db/migration/h2
+RUNSCRIPT FROM 'classpath:db/migration/common/V1__init.sql';
+RUNSCRIPT FROM 'classpath:db/migration/common/V2__rollups.sql';
+RUNSCRIPT FROM 'classpath:db/migration/h2/V2_1__hits_indexes.sql';
@@ -1 +1,3 @@
 drop table if exists endpoint_hits;
+drop table if exists endpoint_hits_hourly;
+drop table if exists endpoint_hits_daily;
\ No newline at end of file
@@ -0,0 +1,10 @@
+delete from endpoint_hits_hourly;
+delete from endpoint_hits_daily;
+
+insert into endpoint_hits_hourly (app, uri, bucket, hits)
+select app, uri, date_trunc('hour', created), count(*) from endpoint_hits
+group by app, uri, date_trunc('hour', created);
+
+insert into endpoint_hits_daily (app, uri, bucket, hits)
+select app, uri, date_trunc('day', created), count(*) from endpoint_hits
+group by app, uri, date_trunc('day', created);